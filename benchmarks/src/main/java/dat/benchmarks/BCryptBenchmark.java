@@ -0,0 +1,38 @@
+package dat.benchmarks;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: BCrypt cost per log round setting. Every extra round doubles the time of a login or registration
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BCryptBenchmark {
+
+    @Param({"8", "10", "12"})
+    public int logRounds;
+
+    private String hash;
+
+    @Setup
+    public void setup() {
+        hash = BCrypt.hashpw("benchmark-password", BCrypt.gensalt(logRounds));
+    }
+
+    @Benchmark
+    public String hash() {
+        return BCrypt.hashpw("benchmark-password", BCrypt.gensalt(logRounds));
+    }
+
+    @Benchmark
+    public boolean check() {
+        return BCrypt.checkpw("benchmark-password", hash);
+    }
+}
@@ -0,0 +1,75 @@
+package dat.benchmarks;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import dat.utils.Compression;
+import dat.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: CPU cost of compressing hotel JSON with gzip and brotli at different levels.
+ * The bytes on the wire are reported next to the time as the compress:jsonBytes and compress:wireBytes results
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    // content coding and level, e.g. "br-4"
+    @Param({"gzip-1", "gzip-6", "gzip-9", "br-1", "br-4", "br-11"})
+    public String encoding;
+
+    @Param({"10", "1000", "10000"})
+    public int totalRooms;
+
+    private String coding;
+    private int level;
+    private byte[] json;
+    private int compressedLength;
+
+    /**
+     * Sizes of one response before and after compression. JMH sums event counters over the measurement
+     * iterations, so they are set in the first one only and the results are the sizes of a single response
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+
+        public long jsonBytes;
+        public long wireBytes;
+        private boolean reported;
+
+        @Setup(Level.Iteration)
+        public void setup(IterationParams iteration, CompressionBenchmark benchmark) {
+            boolean report = !reported && iteration.getType() == IterationType.MEASUREMENT;
+            jsonBytes = report ? benchmark.json.length : 0;
+            wireBytes = report ? benchmark.compressedLength : 0;
+            reported |= report;
+        }
+    }
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        String[] parts = encoding.split("-");
+        coding = parts[0];
+        level = Integer.parseInt(parts[1]);
+        if (coding.equals(Compression.BROTLI)) {
+            Brotli4jLoader.ensureAvailability();
+        }
+        json = new Utils().getObjectMapper().writeValueAsBytes(Fixtures.hotelDTOs(totalRooms));
+        compressedLength = Compression.encode(coding, json, level).length;
+    }
+
+    // Sizes is only asked for so its counters end up in the results
+    @Benchmark
+    public byte[] compress(Sizes sizes) {
+        return Compression.encode(coding, json, level);
+    }
+}
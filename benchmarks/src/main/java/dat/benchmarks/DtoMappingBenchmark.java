@@ -0,0 +1,43 @@
+package dat.benchmarks;
+
+import dat.dtos.HotelDTO;
+import dat.dtos.RoomDTO;
+import dat.entities.Hotel;
+import dat.entities.Room;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: Cost of copying entities into DTOs, HotelDTO(Hotel) including one RoomDTO per room
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"10", "1000"})
+    public int rooms;
+
+    private Hotel hotel;
+    private Room room;
+
+    @Setup
+    public void setup() {
+        hotel = Fixtures.hotel(1, rooms);
+        room = hotel.getRooms().iterator().next();
+    }
+
+    @Benchmark
+    public HotelDTO hotelToDto() {
+        return new HotelDTO(hotel);
+    }
+
+    @Benchmark
+    public RoomDTO roomToDto() {
+        return new RoomDTO(room);
+    }
+}
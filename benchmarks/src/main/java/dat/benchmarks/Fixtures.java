@@ -0,0 +1,42 @@
+package dat.benchmarks;
+
+import dat.dtos.HotelDTO;
+import dat.dtos.RoomDTO;
+import dat.entities.Hotel;
+import dat.entities.Room;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Purpose: In-memory hotels and rooms for the benchmarks. Nothing is persisted
+ */
+final class Fixtures {
+
+    static final int ROOMS_PER_HOTEL = 100;
+    private static final Room.RoomType[] ROOM_TYPES = Room.RoomType.values();
+
+    private Fixtures() {
+    }
+
+    // Room ids are set through RoomDTO, the DTOs hash on them
+    static Hotel hotel(int hotelNumber, int rooms) {
+        Hotel hotel = new Hotel("Hotel " + hotelNumber, "Street " + hotelNumber, Hotel.HotelType.STANDARD);
+        for (int i = 0; i < rooms; i++) {
+            int roomId = hotelNumber * 1_000_000 + i;
+            hotel.addRoom(new Room(new RoomDTO(roomId, 100 + i, BigDecimal.valueOf(1000 + i % 500), ROOM_TYPES[i % ROOM_TYPES.length])));
+        }
+        return hotel;
+    }
+
+    // totalRooms spread over hotels of ROOMS_PER_HOTEL rooms each
+    static List<HotelDTO> hotelDTOs(int totalRooms) {
+        List<HotelDTO> hotelDTOS = new ArrayList<>();
+        int hotelNumber = 0;
+        for (int remaining = totalRooms; remaining > 0; remaining -= ROOMS_PER_HOTEL) {
+            hotelDTOS.add(new HotelDTO(hotel(hotelNumber++, Math.min(remaining, ROOMS_PER_HOTEL))));
+        }
+        return hotelDTOS;
+    }
+}
@@ -0,0 +1,38 @@
+package dat.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dat.dtos.HotelDTO;
+import dat.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: Jackson serialization of List<HotelDTO>, with the object mapper the API uses
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int totalRooms;
+
+    private final ObjectMapper objectMapper = new Utils().getObjectMapper();
+    private List<HotelDTO> hotels;
+
+    @Setup
+    public void setup() {
+        hotels = Fixtures.hotelDTOs(totalRooms);
+    }
+
+    @Benchmark
+    public byte[] serializeHotels() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(hotels);
+    }
+}
@@ -0,0 +1,69 @@
+package dat.benchmarks;
+
+import dat.security.controllers.SecurityController;
+import dat.security.enums.Role;
+import dk.bugelhartmann.UserDTO;
+import io.javalin.security.RouteRole;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: Token creation and verification and route role matching. No database is needed,
+ * the token settings are passed as system properties, which AppConfig reads last
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-DISSUER=benchmark",
+        "-DTOKEN_EXPIRE_TIME=1800000",
+        "-DSECRET_KEY=841D8A6C80CBA4FCAD32D5367C18C53B"
+})
+public class SecurityBenchmark {
+
+    private SecurityController securityController;
+    private UserDTO user;
+    private String token;
+    private Set<RouteRole> adminOnly;
+    private Set<RouteRole> userOrAdmin;
+
+    @Setup
+    public void setup() {
+        securityController = SecurityController.getInstance();
+        user = new UserDTO("benchmark", Set.of("USER"));
+        token = securityController.createToken(user);
+        adminOnly = Set.of(Role.ADMIN);
+        userOrAdmin = Set.of(Role.USER, Role.ADMIN);
+    }
+
+    @Benchmark
+    public String createToken() {
+        return securityController.createToken(user);
+    }
+
+    // The same token on every call: answered from the verified-token cache after the first call
+    @Benchmark
+    public UserDTO verifyCachedToken() {
+        return securityController.verifyToken(token);
+    }
+
+    // A fresh token on every call, so the signature is checked every time
+    @Benchmark
+    public UserDTO createAndVerifyToken() {
+        return securityController.verifyToken(securityController.createToken(user));
+    }
+
+    @Benchmark
+    public boolean authorizeMatch() {
+        return securityController.authorize(user, userOrAdmin);
+    }
+
+    @Benchmark
+    public boolean authorizeNoMatch() {
+        return securityController.authorize(user, adminOnly);
+    }
+}
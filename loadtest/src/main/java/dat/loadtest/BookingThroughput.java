@@ -0,0 +1,189 @@
+package dat.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dat.config.HibernateConfig;
+import dat.daos.impl.BookingDAO;
+import dat.daos.impl.HotelDAO;
+import dat.daos.impl.RoomDAO;
+import dat.dtos.BookingDTO;
+import dat.dtos.HotelDTO;
+import dat.dtos.RoomDTO;
+import dat.entities.Hotel;
+import dat.entities.Room;
+import dat.utils.Utils;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Purpose: Booking throughput of BookingDAO for a list of thread counts, against H2 like LoadTest. Every thread
+ * books consecutive nights of its own room, so no two threads touch the same room and throughput should grow
+ * with the threads until the connection pool runs out. Each thread count gets fresh rooms.
+ *
+ * Settings are key=value arguments: threads (1,2,4,8), warmup (3 seconds), duration (10 seconds per thread count),
+ * dbLatencyMs (1, added to every SQL statement, see SlowDataSource), minSpeedup (2.0) and result
+ * (target/booking-throughput-<timestamp>.json). The results are written as JSON. The exit code is 1 when a booking
+ * failed, or when the highest thread count is less than minSpeedup times faster than the lowest
+ *
+ *     java -cp loadtest/target/loadtest.jar dat.loadtest.BookingThroughput threads=1,2,4,8,16 duration=20
+ */
+public class BookingThroughput {
+
+    private static final ObjectMapper objectMapper = new Utils().getObjectMapper();
+
+    // One measured thread count, written to the result file. speedup is relative to the lowest thread count
+    record Result(int threads, long bookings, double bookingsPerSecond, double speedup, long errors, int peakActive, int peakPending) {
+    }
+
+    private record Run(long bookings, long errors) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = LoadTest.parse(args);
+        int[] threadCounts = Arrays.stream(settings.getOrDefault("threads", "1,2,4,8").split(",")).mapToInt(t -> Integer.parseInt(t.trim())).sorted().toArray();
+        int warmup = Integer.parseInt(settings.getOrDefault("warmup", "3"));
+        int duration = Integer.parseInt(settings.getOrDefault("duration", "10"));
+        long dbLatencyMs = Long.parseLong(settings.getOrDefault("dbLatencyMs", "1"));
+        double minSpeedup = Double.parseDouble(settings.getOrDefault("minSpeedup", "2.0"));
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        File resultFile = new File(settings.getOrDefault("result", "target/booking-throughput-" + stamp + ".json"));
+
+        LoadTest.configure();
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
+        List<List<Integer>> roomsPerRun = seedRooms(emf, threadCounts);
+        // built after seeding, the availability index loads the rooms from the database
+        BookingDAO bookingDAO = BookingDAO.getInstance(emf);
+        SlowDataSource.setLatencyMillis(dbLatencyMs);
+
+        List<Result> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < threadCounts.length; i++) {
+                int threads = threadCounts[i];
+                List<Integer> rooms = roomsPerRun.get(i);
+                LocalDate[] nextNight = new LocalDate[threads];
+                Arrays.fill(nextNight, LocalDate.now().plusDays(1));
+                System.out.printf("%d threads, %d ms per statement: warming up for %d s%n", threads, dbLatencyMs, warmup);
+                run(bookingDAO, rooms, nextNight, warmup, new PoolSampler());
+                System.out.printf("Measuring for %d s%n", duration);
+                PoolSampler pool = new PoolSampler();
+                Run run = run(bookingDAO, rooms, nextNight, duration, pool);
+                double perSecond = run.bookings() / (double) duration;
+                double speedup = results.isEmpty() ? 1.0 : perSecond / results.get(0).bookingsPerSecond();
+                results.add(new Result(threads, run.bookings(), perSecond, speedup, run.errors(), pool.getPeakActive(), pool.getPeakPending()));
+            }
+        } finally {
+            SlowDataSource.setLatencyMillis(0);
+        }
+
+        report(results, dbLatencyMs);
+        write(resultFile, results, dbLatencyMs, duration);
+
+        Result lowest = results.get(0);
+        Result highest = results.get(results.size() - 1);
+        if (results.stream().anyMatch(result -> result.errors() > 0)) {
+            System.out.println("FAILED: bookings of independent rooms failed");
+            System.exit(1);
+        }
+        if (highest.threads() > lowest.threads() && highest.speedup() < minSpeedup) {
+            System.out.printf("FAILED: %d threads are %.2fx as fast as %d, expected at least %.2fx%n", highest.threads(), highest.speedup(), lowest.threads(), minSpeedup);
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    // One hotel with a room per thread of every run
+    private static List<List<Integer>> seedRooms(EntityManagerFactory emf, int[] threadCounts) {
+        int total = Arrays.stream(threadCounts).sum();
+        HotelDTO hotel = new HotelDTO("Booking Throughput Hotel", "Test Street 1", Hotel.HotelType.STANDARD);
+        for (int r = 0; r < total; r++) {
+            hotel.getRooms().add(new RoomDTO(null, 100 + r, BigDecimal.valueOf(1000), Room.RoomType.SINGLE));
+        }
+        HotelDAO.getInstance(emf).bulkImport(List.of(hotel).iterator());
+        int hotelId = HotelDAO.getInstance(emf).readPage(0, 1, false).get(0).getId();
+        List<Integer> roomIds = RoomDAO.getInstance(emf).search(hotelId, null, null, null, "id").stream().map(RoomDTO::getId).toList();
+
+        List<List<Integer>> roomsPerRun = new ArrayList<>();
+        int next = 0;
+        for (int threads : threadCounts) {
+            roomsPerRun.add(roomIds.subList(next, next + threads));
+            next += threads;
+        }
+        return roomsPerRun;
+    }
+
+    // Thread t books one night after another in rooms[t]. nextNight carries on from the warmup, so nights never repeat
+    private static Run run(BookingDAO bookingDAO, List<Integer> rooms, LocalDate[] nextNight, int seconds, PoolSampler pool) throws InterruptedException {
+        LongAdder bookings = new LongAdder();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newFixedThreadPool(rooms.size());
+        for (int t = 0; t < rooms.size(); t++) {
+            int thread = t;
+            int roomId = rooms.get(t);
+            workers.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    LocalDate night = nextNight[thread];
+                    try {
+                        bookingDAO.create(new BookingDTO(roomId, night, night.plusDays(1), "Throughput Guest"), "loadtest");
+                        bookings.increment();
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                    nextNight[thread] = night.plusDays(1);
+                }
+            });
+        }
+        workers.shutdown();
+        long stopWaiting = deadline + TimeUnit.SECONDS.toNanos(60);
+        while (!workers.awaitTermination(PoolSampler.INTERVAL_MILLIS, TimeUnit.MILLISECONDS) && System.nanoTime() < stopWaiting) {
+            pool.sample();
+        }
+        if (!failures.isEmpty()) {
+            System.out.printf("%d bookings failed, first: %s%n", failures.size(), failures.peek());
+        }
+        return new Run(bookings.sum(), failures.size());
+    }
+
+    private static void report(List<Result> results, long dbLatencyMs) {
+        System.out.printf("%nIndependent rooms with %d ms per statement%n", dbLatencyMs);
+        System.out.printf("%-10s %10s %12s %10s %8s %12s %12s%n", "threads", "bookings", "bookings/s", "speedup", "errors", "peak active", "peak waiting");
+        for (Result result : results) {
+            System.out.printf("%-10d %10d %12.1f %10.2f %8d %12d %12d%n",
+                    result.threads(),
+                    result.bookings(),
+                    result.bookingsPerSecond(),
+                    result.speedup(),
+                    result.errors(),
+                    result.peakActive(),
+                    result.peakPending());
+        }
+    }
+
+    private static void write(File file, List<Result> results, long dbLatencyMs, int duration) throws IOException {
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("dbLatencyMs", dbLatencyMs);
+        document.put("durationSeconds", duration);
+        document.put("results", results);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, document);
+        System.out.printf("Results written to %s%n", file.getPath());
+    }
+}
@@ -0,0 +1,414 @@
+package dat.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dat.config.ApplicationConfig;
+import dat.config.HibernateConfig;
+import dat.daos.impl.HotelDAO;
+import dat.daos.impl.RoomDAO;
+import dat.dtos.HotelDTO;
+import dat.dtos.ImportResultDTO;
+import dat.dtos.RoomDTO;
+import dat.entities.Hotel;
+import dat.entities.Room;
+import dat.utils.Utils;
+import io.javalin.Javalin;
+import jakarta.persistence.EntityManagerFactory;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: Boots the API against H2 in PostgreSQL mode, seeds hotels x rooms and users, and drives a mixed
+ * read/write/auth load from an in-JVM HTTP client. Prints throughput and p50/p99/p999 per scenario.
+ *
+ * Settings are key=value arguments: hotels (200), rooms (50 per hotel), users (20), threads (16),
+ * warmup (5 seconds), duration (30 seconds) and maxErrorRate (0.01). The exit code is 1 when more than
+ * maxErrorRate of the requests failed, so the run can gate a build.
+ *
+ * threadModels (platform) runs the same load once per listed server thread model, e.g. "platform,virtual",
+ * and dbLatencyMs (0) adds that delay to every SQL statement (see SlowDataSource). Together they show how
+ * the Hikari pool, not the request thread count, limits throughput under virtual threads
+ */
+public class LoadTest {
+
+    private static final ObjectMapper objectMapper = new Utils().getObjectMapper();
+    private static final String PASSWORD = "loadtest-password";
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final List<Integer> hotelIds;
+    private final List<RoomDTO> rooms;
+    private final List<String> usernames = new ArrayList<>();
+    private final List<String> tokens = new ArrayList<>();
+    private String baseUrl;
+
+    // Totals of one measured run, for the comparison between thread models
+    private record RunSummary(String threadModel, long requests, double throughput, double p99Millis, double errorRate, int peakActive, int peakPending) {
+    }
+
+    private LoadTest(List<Integer> hotelIds, List<RoomDTO> rooms) {
+        this.hotelIds = hotelIds;
+        this.rooms = rooms;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = parse(args);
+        int hotels = Integer.parseInt(settings.getOrDefault("hotels", "200"));
+        int roomsPerHotel = Integer.parseInt(settings.getOrDefault("rooms", "50"));
+        int users = Integer.parseInt(settings.getOrDefault("users", "20"));
+        int threads = Integer.parseInt(settings.getOrDefault("threads", "16"));
+        int warmup = Integer.parseInt(settings.getOrDefault("warmup", "5"));
+        int duration = Integer.parseInt(settings.getOrDefault("duration", "30"));
+        double maxErrorRate = Double.parseDouble(settings.getOrDefault("maxErrorRate", "0.01"));
+        List<String> threadModels = List.of(settings.getOrDefault("threadModels", "platform").split(","));
+        long dbLatencyMs = Long.parseLong(settings.getOrDefault("dbLatencyMs", "0"));
+
+        configure();
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
+        long start = System.nanoTime();
+        ImportResultDTO seeded = HotelDAO.getInstance(emf).bulkImport(generateHotels(hotels, roomsPerHotel));
+        System.out.printf("Seeded %d hotels and %d rooms in %d ms%n", seeded.getHotels(), seeded.getRooms(), (System.nanoTime() - start) / 1_000_000);
+
+        List<Integer> hotelIds = HotelDAO.getInstance(emf).readPage(0, hotels, false).stream().map(HotelDTO::getId).toList();
+        List<RoomDTO> rooms = RoomDAO.getInstance(emf).search(null, null, null, null, null);
+        LoadTest loadTest = new LoadTest(hotelIds, rooms);
+
+        List<RunSummary> summaries = new ArrayList<>();
+        for (String threadModel : threadModels) {
+            boolean virtual = switch (threadModel.trim()) {
+                case "platform" -> false;
+                case "virtual" -> true;
+                default -> throw new IllegalArgumentException("threadModels takes platform and/or virtual, got " + threadModel);
+            };
+            if (virtual && Runtime.version().feature() < 21) {
+                System.out.printf("Skipping virtual threads, Java %d has none%n", Runtime.version().feature());
+                continue;
+            }
+            Javalin app = ApplicationConfig.startServer(0, virtual);
+            try {
+                loadTest.baseUrl = "http://localhost:" + app.port() + "/api";
+                // registered once, before any latency is added. Tokens stay valid across server restarts
+                if (loadTest.tokens.isEmpty()) {
+                    loadTest.registerUsers(users);
+                }
+                SlowDataSource.setLatencyMillis(dbLatencyMs);
+
+                List<Scenario> scenarios = loadTest.scenarios();
+                System.out.printf("%n%s threads, %d ms per statement: warming up for %d s with %d client threads%n", threadModel, dbLatencyMs, warmup, threads);
+                loadTest.run(scenarios, threads, warmup, new PoolSampler());
+                scenarios.forEach(Scenario::drain);
+                System.out.printf("Measuring for %d s%n", duration);
+                PoolSampler pool = new PoolSampler();
+                loadTest.run(scenarios, threads, duration, pool);
+                summaries.add(report(threadModel, scenarios, duration, pool));
+            } finally {
+                SlowDataSource.setLatencyMillis(0);
+                ApplicationConfig.stopServer(app);
+            }
+        }
+
+        if (summaries.size() > 1) {
+            compare(summaries, dbLatencyMs);
+        }
+        for (RunSummary summary : summaries) {
+            if (summary.errorRate() > maxErrorRate) {
+                System.out.printf("FAILED: error rate %.4f with %s threads is above %.4f%n", summary.errorRate(), summary.threadModel(), maxErrorRate);
+                System.exit(1);
+            }
+        }
+        System.exit(0);
+    }
+
+    // Settings AppConfig would otherwise read from config.properties, and H2 in place of PostgreSQL.
+    // Hikari builds the pool from SlowDataSource, so statements can be given an artificial latency
+    static void configure() {
+        setIfAbsent("DB_NAME", "loadtest");
+        setIfAbsent("ISSUER", "loadtest");
+        setIfAbsent("TOKEN_EXPIRE_TIME", "1800000");
+        setIfAbsent("SECRET_KEY", "6C1D8A4F80CBA4FCAD32D5367C18C53B");
+        setIfAbsent("ACCESS_LOG_SAMPLE_RATE", "0.01");
+        HibernateConfig.setPropertyCustomizer(props -> {
+            props.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            props.remove("hibernate.connection.driver_class");
+            props.remove("hibernate.connection.url");
+            props.setProperty("hibernate.hikari.dataSourceClassName", SlowDataSource.class.getName());
+            props.setProperty("hibernate.hikari.dataSource.url", "jdbc:h2:mem:loadtest;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1");
+            props.setProperty("hibernate.connection.username", "sa");
+            props.setProperty("hibernate.connection.password", "");
+            props.setProperty("hibernate.hbm2ddl.auto", "create");
+            props.setProperty("hibernate.hbm2ddl.import_files", "/loadtest-import.sql");
+            props.setProperty("hibernate.show_sql", "false");
+            props.setProperty("hibernate.format_sql", "false");
+            props.setProperty("hibernate.use_sql_comments", "false");
+            // PostgreSQL driver settings, H2 does not know them
+            props.remove("hibernate.hikari.dataSource.preparedStatementCacheQueries");
+            props.remove("hibernate.hikari.dataSource.reWriteBatchedInserts");
+        });
+    }
+
+    private static void setIfAbsent(String name, String value) {
+        if (System.getProperty(name) == null) {
+            System.setProperty(name, value);
+        }
+    }
+
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> settings = new HashMap<>();
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            settings.put(parts[0], parts[1]);
+        }
+        return settings;
+    }
+
+    // Generated lazily, the import commits in chunks and never holds the whole catalogue
+    private static Iterator<HotelDTO> generateHotels(int hotels, int roomsPerHotel) {
+        Room.RoomType[] roomTypes = Room.RoomType.values();
+        Hotel.HotelType[] hotelTypes = Hotel.HotelType.values();
+        return new Iterator<>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < hotels;
+            }
+
+            @Override
+            public HotelDTO next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int n = next++;
+                HotelDTO hotel = new HotelDTO("Load Test Hotel " + n, "Test Street " + n, hotelTypes[n % hotelTypes.length]);
+                for (int r = 0; r < roomsPerHotel; r++) {
+                    hotel.getRooms().add(new RoomDTO(null, 100 + r, BigDecimal.valueOf(800 + (r * 37) % 2000), roomTypes[r % roomTypes.length]));
+                }
+                return hotel;
+            }
+        };
+    }
+
+    // Sequential, the first registration creates the shared "user" role
+    private void registerUsers(int users) throws IOException, InterruptedException {
+        for (int i = 0; i < users; i++) {
+            String username = "loadtest" + i;
+            HttpResponse<String> response = client.send(post("/auth/register", credentials(username), null), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Could not register " + username + ": " + response.statusCode() + " " + response.body());
+            }
+            JsonNode body = objectMapper.readTree(response.body());
+            usernames.add(username);
+            tokens.add(body.get("token").asText());
+        }
+    }
+
+    private List<Scenario> scenarios() {
+        Set<Integer> ok = Set.of(200);
+        return List.of(
+                // reads
+                new Scenario("hotel page", 20, ok, () -> get("/hotels?after=" + randomHotelId() + "&limit=50")),
+                new Scenario("hotel by id", 20, ok, () -> get("/hotels/" + randomHotelId())),
+                new Scenario("room search", 15, ok, () -> get("/rooms?hotelId=" + randomHotelId() + "&type=DOUBLE&maxPrice=2000&sort=price")),
+                new Scenario("availability", 15, ok, () -> {
+                    LocalDate from = randomFutureDate();
+                    return get("/hotels/" + randomHotelId() + "/availability?from=" + from + "&to=" + from.plusDays(3));
+                }),
+                // writes. A booking of an already booked room is a valid 409
+                new Scenario("create booking", 10, Set.of(201, 409), () -> {
+                    LocalDate from = randomFutureDate();
+                    return post("/bookings", Map.of(
+                            "roomId", randomRoom().getId(),
+                            "from", from.toString(),
+                            "to", from.plusDays(1 + ThreadLocalRandom.current().nextInt(7)).toString(),
+                            "guestName", "Load Test Guest"), randomToken());
+                }),
+                new Scenario("update room price", 10, ok, () -> {
+                    RoomDTO room = randomRoom();
+                    return put("/rooms/" + room.getId(), Map.of(
+                            "roomNumber", room.getRoomNumber(),
+                            "roomType", room.getRoomType(),
+                            "roomPrice", 800 + ThreadLocalRandom.current().nextInt(2000)));
+                }),
+                // auth, dominated by BCrypt. 503 means the hashing pool shed the request
+                new Scenario("login", 10, ok, () -> post("/auth/login", credentials(usernames.get(ThreadLocalRandom.current().nextInt(usernames.size()))), null))
+        );
+    }
+
+    private void run(List<Scenario> scenarios, int threads, int seconds, PoolSampler pool) throws InterruptedException {
+        int totalWeight = scenarios.stream().mapToInt(Scenario::getWeight).sum();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            workers.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    Scenario scenario = pick(scenarios, totalWeight);
+                    HttpRequest request = scenario.nextRequest();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        scenario.record(System.nanoTime() - start, response.statusCode());
+                    } catch (IOException e) {
+                        scenario.recordFailure(System.nanoTime() - start);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        long stopWaiting = deadline + TimeUnit.SECONDS.toNanos(60);
+        while (!workers.awaitTermination(PoolSampler.INTERVAL_MILLIS, TimeUnit.MILLISECONDS) && System.nanoTime() < stopWaiting) {
+            pool.sample();
+        }
+    }
+
+    private static Scenario pick(List<Scenario> scenarios, int totalWeight) {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            roll -= scenario.getWeight();
+            if (roll < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    private static RunSummary report(String threadModel, List<Scenario> scenarios, int seconds, PoolSampler pool) {
+        System.out.printf("%n%-18s %10s %10s %10s %10s %10s %10s %8s%n", "scenario", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+        long totalRequests = 0;
+        long totalErrors = 0;
+        Histogram all = null;
+        for (Scenario scenario : scenarios) {
+            long errors = scenario.getErrors();
+            Histogram histogram = scenario.drain();
+            print(scenario.getName(), histogram, seconds, errors);
+            totalRequests += histogram.getTotalCount();
+            totalErrors += errors;
+            if (all == null) {
+                all = histogram.copy();
+            } else {
+                all.add(histogram);
+            }
+        }
+        if (all != null) {
+            print("total", all, seconds, totalErrors);
+        }
+        System.out.printf("connection pool: peak %d active, peak %d threads waiting for a connection%n", pool.getPeakActive(), pool.getPeakPending());
+        return new RunSummary(threadModel,
+                totalRequests,
+                totalRequests / (double) seconds,
+                all == null ? 0 : millis(all.getValueAtPercentile(99)),
+                totalRequests == 0 ? 1.0 : (double) totalErrors / totalRequests,
+                pool.getPeakActive(),
+                pool.getPeakPending());
+    }
+
+    // One line per thread model. With enough client threads both hit the same ceiling, the pool size
+    private static void compare(List<RunSummary> summaries, long dbLatencyMs) {
+        System.out.printf("%nThread models with %d ms per statement%n", dbLatencyMs);
+        System.out.printf("%-10s %10s %10s %10s %10s %12s %12s%n", "threads", "requests", "req/s", "p99 ms", "errors %", "peak active", "peak waiting");
+        for (RunSummary summary : summaries) {
+            System.out.printf("%-10s %10d %10.1f %10.2f %10.2f %12d %12d%n",
+                    summary.threadModel(),
+                    summary.requests(),
+                    summary.throughput(),
+                    summary.p99Millis(),
+                    summary.errorRate() * 100,
+                    summary.peakActive(),
+                    summary.peakPending());
+        }
+    }
+
+    private static void print(String name, Histogram histogram, int seconds, long errors) {
+        System.out.printf("%-18s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getTotalCount() / (double) seconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()),
+                errors);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private int randomHotelId() {
+        return hotelIds.get(ThreadLocalRandom.current().nextInt(hotelIds.size()));
+    }
+
+    private RoomDTO randomRoom() {
+        return rooms.get(ThreadLocalRandom.current().nextInt(rooms.size()));
+    }
+
+    private String randomToken() {
+        return tokens.get(ThreadLocalRandom.current().nextInt(tokens.size()));
+    }
+
+    private static LocalDate randomFutureDate() {
+        return LocalDate.now().plusDays(1 + ThreadLocalRandom.current().nextInt(365));
+    }
+
+    private static Map<String, String> credentials(String username) {
+        return Map.of("username", username, "password", PASSWORD);
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body, String token) {
+        return withBody(HttpRequest.newBuilder(URI.create(baseUrl + path)), token)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(json(body)))
+                .build();
+    }
+
+    private HttpRequest put(String path, Object body) {
+        return withBody(HttpRequest.newBuilder(URI.create(baseUrl + path)), null)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(json(body)))
+                .build();
+    }
+
+    private static HttpRequest.Builder withBody(HttpRequest.Builder builder, String token) {
+        builder.header("Content-Type", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private static byte[] json(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize request body", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package dat.loadtest;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dat.config.HibernateConfig;
+
+/**
+ * Purpose: Polls the Hikari pool while the load runs and keeps the peak number of active connections and of
+ * threads waiting for one. Waiting threads with every connection active mean the pool is the bottleneck
+ */
+class PoolSampler {
+
+    static final long INTERVAL_MILLIS = 50;
+
+    private final HikariPoolMXBean pool = HibernateConfig.getPoolMXBean();
+    private int peakActive;
+    private int peakPending;
+
+    void sample() {
+        peakActive = Math.max(peakActive, pool.getActiveConnections());
+        peakPending = Math.max(peakPending, pool.getThreadsAwaitingConnection());
+    }
+
+    int getPeakActive() {
+        return peakActive;
+    }
+
+    int getPeakPending() {
+        return peakPending;
+    }
+}
@@ -0,0 +1,67 @@
+package dat.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpRequest;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Purpose: One kind of request in the load mix, with its share of the traffic and its latency recording.
+ * Responses with a status outside expectedStatuses count as errors
+ */
+class Scenario {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final String name;
+    private final int weight;
+    private final Supplier<HttpRequest> requests;
+    private final Set<Integer> expectedStatuses;
+    private final Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+    private final LongAdder errors = new LongAdder();
+
+    Scenario(String name, int weight, Set<Integer> expectedStatuses, Supplier<HttpRequest> requests) {
+        this.name = name;
+        this.weight = weight;
+        this.expectedStatuses = expectedStatuses;
+        this.requests = requests;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getWeight() {
+        return weight;
+    }
+
+    HttpRequest nextRequest() {
+        return requests.get();
+    }
+
+    void record(long latencyNanos, int status) {
+        recorder.recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+        if (!expectedStatuses.contains(status)) {
+            errors.increment();
+        }
+    }
+
+    void recordFailure(long latencyNanos) {
+        recorder.recordValue(Math.min(latencyNanos, MAX_LATENCY_NANOS));
+        errors.increment();
+    }
+
+    // Returns what was recorded since the last call and starts over, used to drop the warm-up phase
+    Histogram drain() {
+        errors.reset();
+        return recorder.getIntervalHistogram();
+    }
+
+    long getErrors() {
+        return errors.sum();
+    }
+}
@@ -0,0 +1,121 @@
+package dat.loadtest;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.logging.Logger;
+
+/**
+ * Purpose: H2 data source that adds a fixed delay to every statement execution, standing in for the network
+ * and query time of a real database. The delay is spent while the pooled connection is checked out, so the
+ * Hikari pool limits concurrent database work just as it would against PostgreSQL.
+ * Hikari creates it from hibernate.hikari.dataSourceClassName and sets url, user and password on it
+ */
+public class SlowDataSource implements DataSource {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate", "executeBatch", "executeLargeUpdate", "executeLargeBatch");
+
+    private static volatile long latencyMillis;
+
+    private final JdbcDataSource delegate = new JdbcDataSource();
+
+    // Applies to statements executed from now on, 0 turns the delay off
+    public static void setLatencyMillis(long millis) {
+        latencyMillis = millis;
+    }
+
+    public void setUrl(String url) {
+        delegate.setURL(url);
+    }
+
+    public void setUser(String user) {
+        delegate.setUser(user);
+    }
+
+    public void setPassword(String password) {
+        delegate.setPassword(password);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return slow(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return slow(delegate.getConnection(username, password));
+    }
+
+    // Statements created by the connection are wrapped in turn, everything else goes straight through
+    private static Connection slow(Connection connection) {
+        return proxy(Connection.class, connection, (result, method) ->
+                result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())
+                        ? proxy(method.getReturnType(), statement, null)
+                        : result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<?> type, Object target, BiFunction<Object, Method, Object> mapper) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (mapper == null && EXECUTE_METHODS.contains(method.getName())) {
+                long delay = latencyMillis;
+                if (delay > 0) {
+                    Thread.sleep(delay);
+                }
+            }
+            try {
+                Object result = method.invoke(target, args);
+                return mapper != null ? mapper.apply(result, method) : result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(SlowDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return delegate.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,2 @@
+-- Replaces import.sql under H2: the btree_gist exclusion constraint is PostgreSQL only.
+-- Double bookings are still prevented by the per-room locks and the room version.
@@ -0,0 +1,113 @@
+package dat.config;
+
+import dat.security.exceptions.ApiException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Purpose: Typed, immutable application settings loaded once at startup.
+ * Values are read from config.properties. When DEPLOYED is set, environment variables take precedence,
+ * and JVM system properties (-DKEY=value) override both.
+ */
+public final class AppConfig {
+
+    private static final String RESOURCE_NAME = "config.properties";
+    private static AppConfig instance;
+
+    private final boolean deployed;
+    private final Map<String, String> values;
+
+    private AppConfig(boolean deployed, Map<String, String> values) {
+        this.deployed = deployed;
+        this.values = Map.copyOf(values);
+    }
+
+    public static synchronized AppConfig getInstance() {
+        if (instance == null) {
+            instance = load();
+        }
+        return instance;
+    }
+
+    private static AppConfig load() {
+        Map<String, String> values = new HashMap<>();
+        try (InputStream is = AppConfig.class.getClassLoader().getResourceAsStream(RESOURCE_NAME)) {
+            if (is != null) {
+                Properties prop = new Properties();
+                prop.load(is);
+                prop.stringPropertyNames().forEach(name -> values.put(name, prop.getProperty(name).trim()));
+            }
+        } catch (IOException e) {
+            throw new ApiException(500, "Could not read " + RESOURCE_NAME + ". Did you remember to build the project with MAVEN?");
+        }
+        boolean deployed = System.getenv("DEPLOYED") != null;
+        if (deployed) {
+            values.putAll(System.getenv());
+        }
+        System.getProperties().stringPropertyNames().forEach(name -> values.put(name, System.getProperty(name)));
+        return new AppConfig(deployed, values);
+    }
+
+    public boolean isDeployed() {
+        return deployed;
+    }
+
+    public String get(String name) {
+        String value = values.get(name);
+        if (value == null) {
+            throw new ApiException(500, String.format("Property %s not found in %s or the environment", name, RESOURCE_NAME));
+        }
+        return value;
+    }
+
+    public String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    public double getDouble(String name, double defaultValue) {
+        String value = values.get(name);
+        return value != null ? Double.parseDouble(value.trim()) : defaultValue;
+    }
+
+    public boolean getBoolean(String name, boolean defaultValue) {
+        String value = values.get(name);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    public String getDbName() {
+        return get("DB_NAME");
+    }
+
+    public String getConnectionString() {
+        return get("CONNECTION_STR");
+    }
+
+    public String getDbUsername() {
+        return get("DB_USERNAME");
+    }
+
+    public String getDbPassword() {
+        return get("DB_PASSWORD");
+    }
+
+    public String getIssuer() {
+        return get("ISSUER");
+    }
+
+    public String getTokenExpireTime() {
+        return get("TOKEN_EXPIRE_TIME");
+    }
+
+    public String getSecretKey() {
+        return get("SECRET_KEY");
+    }
+}
@@ -7,13 +7,23 @@ import dat.security.controllers.SecurityController;
 import dat.security.enums.Role;
 import dat.security.exceptions.ApiException;
 import dat.security.routes.SecurityRoutes;
+import dat.utils.Compression;
 import dat.utils.Utils;
 import io.javalin.Javalin;
+import io.javalin.compression.Brotli;
+import io.javalin.compression.CompressionStrategy;
+import io.javalin.compression.Gzip;
 import io.javalin.config.JavalinConfig;
 import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
 public class ApplicationConfig {
 
     private static Routes routes = new Routes();
@@ -21,10 +31,21 @@ public class ApplicationConfig {
     private static SecurityController securityController = SecurityController.getInstance();
     private static AccessController accessController = new AccessController();
     private static Logger logger = LoggerFactory.getLogger(ApplicationConfig.class);
-    private static int count = 1;
+    // Structured access log, written as JSON to logs/access.log through an async appender (see logback.xml)
+    private static final Logger accessLogger = LoggerFactory.getLogger("dat.access");
+    // Share of successful GET requests that are logged. Errors and writes are always logged
+    private static final double accessLogSampleRate = AppConfig.getInstance().getDouble("ACCESS_LOG_SAMPLE_RATE", 1.0);
+    // Path prefixes (below /api) that are never compressed, e.g. already compressed or streamed bodies
+    private static final List<String> uncompressedRoutes = Arrays.stream(AppConfig.getInstance().get("COMPRESSION_EXCLUDED_ROUTES", "").split(","))
+            .map(String::trim)
+            .filter(route -> !route.isEmpty())
+            .map(route -> "/api" + route)
+            .toList();
 
     public static void configuration(JavalinConfig config) {
         config.showJavalinBanner = false;
+        config.useVirtualThreads = useVirtualThreads();
+        config.http.customCompression(compressionStrategy());
         config.bundledPlugins.enableRouteOverview("/routes", Role.ANYONE);
         config.router.contextPath = "/api"; // base path for all endpoints
         config.router.apiBuilder(routes.getRoutes());
@@ -32,21 +53,83 @@ public class ApplicationConfig {
         config.router.apiBuilder(SecurityRoutes.getSecurityRoutes());
     }
 
+    // With virtual threads the request thread count is unbounded, so the Hikari pool size (DB_POOL_SIZE)
+    // becomes the limit on concurrent database work. Requires Java 21, see the jdk21 profile in pom.xml
+    private static boolean useVirtualThreads() {
+        boolean requested = AppConfig.getInstance().getBoolean("VIRTUAL_THREADS", false);
+        if (requested && Runtime.version().feature() < 21) {
+            logger.warn("VIRTUAL_THREADS is set but Java {} has no virtual threads, using the platform thread pool", Runtime.version().feature());
+            return false;
+        }
+        return requested;
+    }
+
+    // Encodings and levels come from COMPRESSION, COMPRESSION_GZIP_LEVEL, COMPRESSION_BROTLI_LEVEL and COMPRESSION_MIN_BYTES.
+    // Javalin picks the encoding from Accept-Encoding, brotli first when both are enabled
+    private static CompressionStrategy compressionStrategy() {
+        List<String> encodings = Compression.getEncodings();
+        if (encodings.isEmpty()) {
+            return CompressionStrategy.NONE;
+        }
+        CompressionStrategy strategy = new CompressionStrategy(
+                encodings.contains(Compression.BROTLI) ? new Brotli(Compression.getBrotliLevel()) : null,
+                encodings.contains(Compression.GZIP) ? new Gzip(Compression.getGzipLevel()) : null);
+        strategy.setMinSizeForCompression(Compression.getMinBytes());
+        return strategy;
+    }
+
     public static Javalin startServer(int port) {
-        Javalin app = Javalin.create(ApplicationConfig::configuration);
+        return startServer(port, useVirtualThreads());
+    }
+
+    // Explicit thread model, so the load test can compare platform and virtual threads in one JVM
+    public static Javalin startServer(int port, boolean virtualThreads) {
+        Javalin app = Javalin.create(config -> {
+            configuration(config);
+            config.useVirtualThreads = virtualThreads;
+        });
 
+        app.before(MetricsConfig::beforeRequest);
+        if (!uncompressedRoutes.isEmpty()) {
+            app.before(ApplicationConfig::excludeFromCompression);
+        }
         app.beforeMatched(accessController::accessHandler);
+        app.after(MetricsConfig::afterRequest);
         app.after(ApplicationConfig::afterRequest);
 
         app.exception(Exception.class, ApplicationConfig::generalExceptionHandler);
         app.exception(ApiException.class, ApplicationConfig::apiExceptionHandler);
         app.start(port);
+        // the EntityManagerFactory is built while the controllers are created, so measure from JVM start
+        logger.info("Server started on port {} in {} ms", port, ManagementFactory.getRuntimeMXBean().getUptime());
         return app;
     }
 
+    private static void excludeFromCompression(Context ctx) {
+        for (String route : uncompressedRoutes) {
+            if (ctx.path().startsWith(route)) {
+                Compression.disable(ctx);
+                return;
+            }
+        }
+    }
+
     public static void afterRequest(Context ctx) {
-        String requestInfo = ctx.req().getMethod() + " " + ctx.req().getRequestURI();
-        logger.info(" Request {} - {} was handled with status code {}", count++, requestInfo, ctx.status());
+        int status = ctx.statusCode();
+        boolean sampled = status >= 400
+                || ctx.method() != HandlerType.GET
+                || accessLogSampleRate >= 1.0
+                || ThreadLocalRandom.current().nextDouble() < accessLogSampleRate;
+        if (!sampled) {
+            return;
+        }
+        accessLogger.atInfo()
+                .addKeyValue("request", MetricsConfig.getRequestCount())
+                .addKeyValue("method", ctx.method().name())
+                .addKeyValue("path", ctx.path())
+                .addKeyValue("status", status)
+                .addKeyValue("durationMs", MetricsConfig.elapsedNanos(ctx) / 1_000_000.0)
+                .log("request handled");
     }
 
     public static void stopServer(Javalin app) {
@@ -54,7 +137,7 @@ public class ApplicationConfig {
     }
 
     private static void generalExceptionHandler(Exception e, Context ctx) {
-        logger.error("An unhandled exception occurred", e.getMessage());
+        logger.error("An unhandled exception occurred: {}", e.getMessage(), e);
         ctx.json(Utils.convertToJsonMessage(ctx, "error", e.getMessage()));
     }
 
@@ -1,23 +1,33 @@
 package dat.config;
 
+import dat.entities.Booking;
 import dat.entities.Hotel;
 import dat.entities.Room;
 import dat.security.entities.Role;
 import dat.security.entities.User;
-import dat.utils.Utils;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import jakarta.persistence.EntityManagerFactory;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.service.ServiceRegistry;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Properties;
+import java.util.function.Consumer;
 
 public class HibernateConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(HibernateConfig.class);
     private static EntityManagerFactory emf;
     private static EntityManagerFactory emfTest;
     private static Boolean isTest = false;
+    private static Consumer<Properties> propertyCustomizer = props -> { };
 
     public static void setTest(Boolean test) {
         isTest = test;
@@ -27,6 +37,12 @@ public class HibernateConfig {
         return isTest;
     }
 
+    // Last say over the Hibernate properties, e.g. the load test swaps PostgreSQL for H2.
+    // Has to be set before the first EntityManagerFactory is created
+    public static void setPropertyCustomizer(Consumer<Properties> customizer) {
+        propertyCustomizer = customizer;
+    }
+
     public static EntityManagerFactory getEntityManagerFactory() {
         if (emf == null)
             emf = createEMF(getTest());
@@ -41,15 +57,34 @@ public class HibernateConfig {
         return emfTest;
     }
 
+    // Hibernate statistics, including second-level cache hits and misses
+    public static Statistics getStatistics() {
+        return getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // The Hikari pool behind the EntityManagerFactory, for active/idle/pending connection counts
+    public static HikariDataSource getDataSource() {
+        ConnectionProvider connectionProvider = getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(ConnectionProvider.class);
+        return connectionProvider.unwrap(HikariDataSource.class);
+    }
+
+    public static HikariPoolMXBean getPoolMXBean() {
+        return getDataSource().getHikariPoolMXBean();
+    }
+
     // TODO: IMPORTANT: Add Entity classes here for them to be registered with Hibernate
     private static void getAnnotationConfiguration(Configuration configuration) {
         configuration.addAnnotatedClass(Hotel.class);
         configuration.addAnnotatedClass(Room.class);
         configuration.addAnnotatedClass(User.class);
         configuration.addAnnotatedClass(Role.class);
+        configuration.addAnnotatedClass(Booking.class);
     }
 
     private static EntityManagerFactory createEMF(boolean forTest) {
+        long start = System.nanoTime();
         try {
             Configuration configuration = new Configuration();
             Properties props = new Properties();
@@ -57,11 +92,15 @@ public class HibernateConfig {
             setBaseProperties(props);
             if (forTest) {
                 props = setTestProperties(props);
-            } else if (System.getenv("DEPLOYED") != null) {
+                setCacheProperties(props, false);
+            } else if (AppConfig.getInstance().isDeployed()) {
                 setDeployedProperties(props);
+                setCacheProperties(props, AppConfig.getInstance().getBoolean("HIBERNATE_L2_CACHE", true));
             } else {
                 props = setDevProperties(props);
+                setCacheProperties(props, true);
             }
+            propertyCustomizer.accept(props);
             configuration.setProperties(props);
             getAnnotationConfiguration(configuration);
 
@@ -70,6 +109,7 @@ public class HibernateConfig {
                     .build();
             SessionFactory sf = configuration.buildSessionFactory(serviceRegistry);
             EntityManagerFactory emf = sf.unwrap(EntityManagerFactory.class);
+            logger.info("EntityManagerFactory created in {} ms", (System.nanoTime() - start) / 1_000_000);
             return emf;
         }
         catch (Throwable ex) {
@@ -83,22 +123,74 @@ public class HibernateConfig {
         props.put("hibernate.connection.driver_class", "org.postgresql.Driver");
         props.put("hibernate.hbm2ddl.auto", "create");
         props.put("hibernate.current_session_context_class", "thread");
+        // JDBC batching and fetch size defaults, shared by all profiles
+        props.put("hibernate.jdbc.batch_size", "50");
+        props.put("hibernate.order_inserts", "true");
+        props.put("hibernate.order_updates", "true");
+        props.put("hibernate.jdbc.batch_versioned_data", "true");
+        props.put("hibernate.jdbc.fetch_size", "100");
+        setPoolProperties(props);
+        return props;
+    }
+
+    // Statement logging for local development. Printing every statement is far too slow for production
+    private static Properties setSqlLoggingProperties(Properties props) {
         props.put("hibernate.show_sql", "true");
         props.put("hibernate.format_sql", "true");
         props.put("hibernate.use_sql_comments", "true");
         return props;
     }
 
+    // HikariCP connection pool. Hikari defaults apply to dev and test, deployments override them from the environment
+    private static Properties setPoolProperties(Properties props) {
+        props.put("hibernate.connection.provider_class", "org.hibernate.hikaricp.internal.HikariCPConnectionProvider");
+        props.put("hibernate.hikari.poolName", "hotel-pool");
+        props.put("hibernate.hikari.maximumPoolSize", "10");
+        props.put("hibernate.hikari.minimumIdle", "10");
+        props.put("hibernate.hikari.connectionTimeout", "30000");
+        props.put("hibernate.hikari.leakDetectionThreshold", "0");
+        props.put("hibernate.hikari.dataSource.preparedStatementCacheQueries", "256");
+        props.put("hibernate.hikari.dataSource.reWriteBatchedInserts", "true");
+        return props;
+    }
+
+    // Second-level and query cache through JCache. Caffeine runs it in-process, regions are configured in application.conf
+    private static Properties setCacheProperties(Properties props, boolean enabled) {
+        props.put("hibernate.cache.use_second_level_cache", String.valueOf(enabled));
+        props.put("hibernate.cache.use_query_cache", String.valueOf(enabled));
+        props.put("hibernate.generate_statistics", String.valueOf(enabled));
+        if (enabled) {
+            props.put("jakarta.persistence.sharedCache.mode", "ENABLE_SELECTIVE");
+            props.put("hibernate.cache.region.factory_class", "jcache");
+            props.put("hibernate.javax.cache.provider", "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+            props.put("hibernate.javax.cache.missing_cache_strategy", "create");
+        }
+        return props;
+    }
+
     private static Properties setDeployedProperties(Properties props) {
-        String DBName = System.getenv("DB_NAME");
-        props.setProperty("hibernate.connection.url", System.getenv("CONNECTION_STR") + DBName);
-        props.setProperty("hibernate.connection.username", System.getenv("DB_USERNAME"));
-        props.setProperty("hibernate.connection.password", System.getenv("DB_PASSWORD"));
+        AppConfig config = AppConfig.getInstance();
+        String DBName = config.getDbName();
+        // Production: keep the schema (validate it against the entities) and no statement logging
+        props.setProperty("hibernate.hbm2ddl.auto", config.get("HBM2DDL_AUTO", "validate"));
+        props.setProperty("hibernate.show_sql", "false");
+        props.setProperty("hibernate.jdbc.batch_size", config.get("DB_BATCH_SIZE", "50"));
+        props.setProperty("hibernate.jdbc.fetch_size", config.get("DB_FETCH_SIZE", "100"));
+        props.setProperty("hibernate.connection.url", config.getConnectionString() + DBName);
+        props.setProperty("hibernate.connection.username", config.getDbUsername());
+        props.setProperty("hibernate.connection.password", config.getDbPassword());
+        props.setProperty("hibernate.hikari.maximumPoolSize", config.get("DB_POOL_SIZE", "10"));
+        props.setProperty("hibernate.hikari.minimumIdle", config.get("DB_POOL_MIN_IDLE", "10"));
+        props.setProperty("hibernate.hikari.connectionTimeout", config.get("DB_CONNECTION_TIMEOUT_MS", "30000"));
+        props.setProperty("hibernate.hikari.leakDetectionThreshold", config.get("DB_LEAK_DETECTION_MS", "0"));
+        props.setProperty("hibernate.hikari.dataSource.preparedStatementCacheQueries", config.get("DB_PREPARED_STATEMENT_CACHE_SIZE", "256"));
+        props.setProperty("hibernate.hikari.dataSource.reWriteBatchedInserts", config.get("DB_REWRITE_BATCHED_INSERTS", "true"));
         return props;
     }
 
     private static Properties setDevProperties(Properties props) {
-        String DBName = Utils.getPropertyValue("DB_NAME", "config.properties");
+        String DBName = AppConfig.getInstance().getDbName();
+        setSqlLoggingProperties(props);
         props.put("hibernate.connection.url", "jdbc:postgresql://localhost:5432/" + DBName);
         props.put("hibernate.connection.username", "postgres");
         props.put("hibernate.connection.password", "postgres");
@@ -0,0 +1,101 @@
+package dat.config;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.javalin.http.Context;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Purpose: Request, JVM and connection pool metrics, scraped by Prometheus from /api/metrics
+ */
+public final class MetricsConfig {
+
+    private static final String START_ATTRIBUTE = "metrics.start";
+    private static final PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    private static final LongAdder requestCount = new LongAdder();
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
+    static {
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmGcMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ClassLoaderMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        new UptimeMetrics().bindTo(registry);
+        Gauge.builder("http.server.requests.active", inFlight, AtomicInteger::get)
+                .description("Requests currently being handled")
+                .register(registry);
+        poolGauge("hikaricp.connections.active", HikariPoolMXBean::getActiveConnections);
+        poolGauge("hikaricp.connections.idle", HikariPoolMXBean::getIdleConnections);
+        poolGauge("hikaricp.connections.pending", HikariPoolMXBean::getThreadsAwaitingConnection);
+        poolGauge("hikaricp.connections", HikariPoolMXBean::getTotalConnections);
+    }
+
+    private MetricsConfig() {
+    }
+
+    public static PrometheusMeterRegistry getRegistry() {
+        return registry;
+    }
+
+    public static long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    // Time since beforeRequest, or -1 when the request was not timed
+    public static long elapsedNanos(Context ctx) {
+        Long start = ctx.attribute(START_ATTRIBUTE);
+        return start != null ? System.nanoTime() - start : -1;
+    }
+
+    public static void beforeRequest(Context ctx) {
+        inFlight.incrementAndGet();
+        ctx.attribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+    // Records latency per method, route template and status. The route template keeps the number of series bounded
+    public static void afterRequest(Context ctx) {
+        Long start = ctx.attribute(START_ATTRIBUTE);
+        if (start == null) {
+            return;
+        }
+        inFlight.decrementAndGet();
+        requestCount.increment();
+        Timer.builder("http.server.requests")
+                .tag("method", ctx.method().name())
+                .tag("route", route(ctx))
+                .tag("status", String.valueOf(ctx.statusCode()))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // Requests that matched no endpoint (404s, preflights) share one series instead of one per URL
+    private static String route(Context ctx) {
+        try {
+            return ctx.endpointHandlerPath();
+        } catch (RuntimeException e) {
+            return "unmatched";
+        }
+    }
+
+    // Read from the pool on every scrape. The pool is looked up lazily, it is built with the EntityManagerFactory
+    private static void poolGauge(String name, ToDoubleFunction<HikariPoolMXBean> value) {
+        Gauge.builder(name, () -> value.applyAsDouble(HibernateConfig.getPoolMXBean()))
+                .tag("pool", "hotel-pool")
+                .register(registry);
+    }
+}
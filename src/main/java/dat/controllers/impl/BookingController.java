@@ -0,0 +1,119 @@
+package dat.controllers.impl;
+
+import dat.config.HibernateConfig;
+import dat.daos.impl.BookingDAO;
+import dat.daos.impl.HotelDAO;
+import dat.dtos.BookingDTO;
+import dat.dtos.RoomDTO;
+import dat.entities.Room;
+import dat.security.enums.Role;
+import dat.security.exceptions.ApiException;
+import dk.bugelhartmann.UserDTO;
+import dat.utils.Utils;
+import io.javalin.http.Context;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+public class BookingController {
+
+    private final BookingDAO dao;
+    private final HotelDAO hotelDAO;
+
+    public BookingController() {
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
+        this.dao = BookingDAO.getInstance(emf);
+        this.hotelDAO = HotelDAO.getInstance(emf);
+    }
+
+    // GET /hotels/{id}/availability?from=2026-01-10&to=2026-01-14&type=DOUBLE
+    public void availability(Context ctx) {
+        // request
+        int hotelId = ctx.pathParamAsClass("id", Integer.class).get();
+        LocalDate from = parseDate(ctx.queryParam("from"), "from");
+        LocalDate to = parseDate(ctx.queryParam("to"), "to");
+        validatePeriod(from, to);
+        Room.RoomType roomType = Utils.parseRoomType(ctx.queryParam("type"));
+        hotelDAO.find(hotelId).orElseThrow(() -> new ApiException(404, "No hotel with id " + hotelId));
+        // DTO
+        List<RoomDTO> roomDTOS = dao.findAvailableRooms(hotelId, from, to, roomType);
+        // response
+        ctx.res().setStatus(200);
+        ctx.json(roomDTOS, RoomDTO.class);
+    }
+
+    public void read(Context ctx) {
+        // request
+        int id = ctx.pathParamAsClass("id", Integer.class).get();
+        // DTO
+        BookingDTO bookingDTO = findOwnBooking(ctx, id);
+        // response
+        ctx.res().setStatus(200);
+        ctx.json(bookingDTO, BookingDTO.class);
+    }
+
+    public void create(Context ctx) {
+        // request
+        BookingDTO jsonRequest = validateEntity(ctx);
+        // DTO
+        UserDTO user = ctx.attribute("user");
+        BookingDTO bookingDTO = dao.create(jsonRequest, user.getUsername());
+        // response
+        ctx.res().setStatus(201);
+        ctx.json(bookingDTO, BookingDTO.class);
+    }
+
+    public void delete(Context ctx) {
+        // request
+        int id = ctx.pathParamAsClass("id", Integer.class).get();
+        findOwnBooking(ctx, id);
+        dao.delete(id);
+        // response
+        ctx.res().setStatus(204);
+    }
+
+    // Bookings can only be read and cancelled by the user who made them, or by an admin.
+    // Another user's booking is reported as missing, so booking ids cannot be probed
+    private BookingDTO findOwnBooking(Context ctx, int id) {
+        UserDTO user = ctx.attribute("user");
+        BookingDTO bookingDTO = dao.find(id).orElseThrow(() -> new ApiException(404, "No booking with id " + id));
+        boolean admin = user.getRoles().stream().anyMatch(role -> role.equalsIgnoreCase(Role.ADMIN.name()));
+        if (!admin && !user.getUsername().equals(bookingDTO.getUsername())) {
+            throw new ApiException(404, "No booking with id " + id);
+        }
+        return bookingDTO;
+    }
+
+    public BookingDTO validateEntity(Context ctx) {
+        BookingDTO bookingDTO = ctx.bodyValidator(BookingDTO.class)
+                .check(b -> b.getRoomId() != null, "Room id must be set")
+                .check(b -> b.getFrom() != null && b.getTo() != null, "from and to must be set")
+                .check(b -> b.getGuestName() != null && !b.getGuestName().isEmpty(), "Guest name must be set")
+                .get();
+        validatePeriod(bookingDTO.getFrom(), bookingDTO.getTo());
+        return bookingDTO;
+    }
+
+    // The index only holds current and future bookings, so periods in the past are rejected
+    private static void validatePeriod(LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            throw new ApiException(400, "from must be before to");
+        }
+        if (from.isBefore(LocalDate.now())) {
+            throw new ApiException(400, "from must not be in the past");
+        }
+    }
+
+    private static LocalDate parseDate(String value, String name) {
+        if (value == null) {
+            throw new ApiException(400, name + " must be set");
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ApiException(400, name + " must be a date like 2025-12-24");
+        }
+    }
+}
@@ -1,18 +1,35 @@
 package dat.controllers.impl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import dat.config.HibernateConfig;
 import dat.controllers.IController;
 import dat.daos.impl.HotelDAO;
 import dat.dtos.HotelDTO;
-import dat.entities.Hotel;
+import dat.dtos.ImportResultDTO;
+import dat.security.exceptions.ApiException;
+import dat.utils.ETags;
+import dat.utils.ResponseCache;
+import dat.utils.Utils;
 import io.javalin.http.Context;
+import io.javalin.http.Header;
 import jakarta.persistence.EntityManagerFactory;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class HotelController implements IController<HotelDTO, Integer> {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final ObjectMapper jsonMapper = new Utils().getObjectMapper();
+
     private final HotelDAO dao;
 
     public HotelController() {
@@ -23,21 +40,67 @@ public class HotelController implements IController<HotelDTO, Integer> {
     @Override
     public void read(Context ctx)  {
         // request
-        int id = ctx.pathParamAsClass("id", Integer.class).check(this::validatePrimaryKey, "Not a valid id").get();
-        // DTO
-        HotelDTO hotelDTO = dao.read(id);
+        int id = ctx.pathParamAsClass("id", Integer.class).get();
+        // conditional GET: compare versions before loading the rooms or serializing anything
+        if (ETags.hasIfNoneMatch(ctx)) {
+            long version = dao.findVersion(id).orElseThrow(() -> new ApiException(404, "No hotel with id " + id));
+            if (ETags.notModified(ctx, ETags.of("hotel", id, version))) {
+                return;
+            }
+        }
+        // DTO, serialized once and served from the response cache until the hotel or its rooms change
+        ResponseCache.Entry response = dao.getResponses().get(id, key -> {
+            HotelDTO hotelDTO = dao.find(key).orElseThrow(() -> new ApiException(404, "No hotel with id " + key));
+            return dao.getResponses().entry(jsonMapper, hotelDTO, Map.of(Header.ETAG, ETags.of("hotel", key, hotelDTO.getVersion())));
+        });
         // response
-        ctx.res().setStatus(200);
-        ctx.json(hotelDTO, HotelDTO.class);
+        ResponseCache.write(ctx, response);
     }
 
     @Override
     public void readAll(Context ctx) {
-        // List of DTOS
-        List<HotelDTO> hotelDTOS = dao.readAll();
+        // request
+        int after = ctx.queryParamAsClass("after", Integer.class).getOrDefault(0);
+        int limit = Math.min(ctx.queryParamAsClass("limit", Integer.class).getOrDefault(DEFAULT_PAGE_SIZE), MAX_PAGE_SIZE);
+        if (limit < 1) {
+            throw new ApiException(400, "limit must be a positive number");
+        }
+        boolean includeRooms = "rooms".equals(ctx.queryParam("include"));
+        // conditional GET: only ids and versions are read to decide
+        if (ETags.hasIfNoneMatch(ctx) && ETags.notModified(ctx, ETags.ofSignature(dao.pageSignature(after, limit, includeRooms)))) {
+            return;
+        }
+        // List of DTOS, serialized once per page and served from the response cache until a hotel changes
+        ResponseCache.Entry response = dao.getPageResponses().get(dao.pageKey(after, limit, includeRooms), key -> {
+            List<HotelDTO> hotelDTOS = dao.readPage(after, limit, includeRooms);
+            Map<String, String> headers = new HashMap<>();
+            headers.put(Header.ETAG, ETags.ofSignature(HotelDAO.pageSignature(after, limit, includeRooms, hotelDTOS)));
+            if (hotelDTOS.size() == limit) {
+                // cursor for the next page: ?after=<id of the last hotel on this page>
+                headers.put("X-Next-After", String.valueOf(hotelDTOS.get(hotelDTOS.size() - 1).getId()));
+            }
+            return dao.getPageResponses().entry(jsonMapper, hotelDTOS, headers);
+        });
+        // response
+        ResponseCache.write(ctx, response);
+    }
+
+    // Writes the whole catalogue as newline delimited JSON, one hotel with its rooms per line
+    public void export(Context ctx) throws IOException {
         // response
         ctx.res().setStatus(200);
-        ctx.json(hotelDTOS, HotelDTO.class);
+        ctx.contentType("application/x-ndjson");
+        try (JsonGenerator generator = jsonMapper.createGenerator(ctx.outputStream())) {
+            generator.setRootValueSeparator(null);
+            dao.exportAll(hotelDTO -> {
+                try {
+                    generator.writeObject(hotelDTO);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
     }
 
     @Override
@@ -51,21 +114,33 @@ public class HotelController implements IController<HotelDTO, Integer> {
         ctx.json(hotelDTO, HotelDTO.class);
     }
 
+    // Accepts a JSON array of hotels with nested rooms. The body is parsed one hotel at a time while persisting
+    public void bulkImport(Context ctx) throws IOException {
+        // request
+        try (MappingIterator<HotelDTO> hotelDTOS = jsonMapper.readerFor(HotelDTO.class).readValues(ctx.bodyInputStream())) {
+            // DTO
+            ImportResultDTO result = dao.bulkImport(hotelDTOS);
+            // response
+            ctx.res().setStatus(201);
+            ctx.json(result);
+        }
+    }
+
     @Override
     public void update(Context ctx) {
         // request
-        int id = ctx.pathParamAsClass("id", Integer.class).check(this::validatePrimaryKey, "Not a valid id").get();
+        int id = ctx.pathParamAsClass("id", Integer.class).get();
         // dto
         HotelDTO hotelDTO = dao.update(id, validateEntity(ctx));
-        // response
+        // response, always without rooms
         ctx.res().setStatus(200);
-        ctx.json(hotelDTO, Hotel.class);
+        ctx.json(hotelDTO, HotelDTO.class);
     }
 
     @Override
     public void delete(Context ctx) {
         // request
-        int id = ctx.pathParamAsClass("id", Integer.class).check(this::validatePrimaryKey, "Not a valid id").get();
+        int id = ctx.pathParamAsClass("id", Integer.class).get();
         dao.delete(id);
         // response
         ctx.res().setStatus(204);
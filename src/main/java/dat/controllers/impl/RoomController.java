@@ -8,9 +8,14 @@ import dat.dtos.RoomDTO;
 import dat.exceptions.Message;
 import dat.entities.Hotel;
 import dat.entities.Room;
+import dat.security.exceptions.ApiException;
+import dat.utils.ETags;
+import dat.utils.Utils;
 import io.javalin.http.Context;
+import io.javalin.http.Header;
 import jakarta.persistence.EntityManagerFactory;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.function.BiFunction;
 
@@ -26,18 +31,36 @@ public class RoomController implements IController<RoomDTO, Integer> {
     @Override
     public void read(Context ctx) {
         // request
-        int id = ctx.pathParamAsClass("id", Integer.class).check(this::validatePrimaryKey, "Not a valid id").get();
+        int id = ctx.pathParamAsClass("id", Integer.class).get();
+        // conditional GET: compare versions before loading or serializing the room
+        if (ETags.hasIfNoneMatch(ctx)) {
+            long version = dao.findVersion(id).orElseThrow(() -> new ApiException(404, "No room with id " + id));
+            if (ETags.notModified(ctx, ETags.of("room", id, version))) {
+                return;
+            }
+        }
         // entity
-        RoomDTO roomDTO = dao.read(id);
+        RoomDTO roomDTO = dao.find(id).orElseThrow(() -> new ApiException(404, "No room with id " + id));
         // response
+        ctx.header(Header.ETAG, ETags.of("room", id, roomDTO.getVersion()));
         ctx.res().setStatus(200);
         ctx.json(roomDTO, RoomDTO.class);
     }
 
+    // GET /rooms?hotelId=1&type=DOUBLE&minPrice=500&maxPrice=1500&sort=-price
     @Override
     public void readAll(Context ctx) {
+        // request
+        Integer hotelId = ctx.queryParamAsClass("hotelId", Integer.class).allowNullable().get();
+        BigDecimal minPrice = toBigDecimal(ctx.queryParamAsClass("minPrice", Double.class).allowNullable().get());
+        BigDecimal maxPrice = toBigDecimal(ctx.queryParamAsClass("maxPrice", Double.class).allowNullable().get());
+        String sort = ctx.queryParamAsClass("sort", String.class)
+                .allowNullable()
+                .check(s -> s == null || RoomDAO.isSortKey(s), "sort must be one of price, number, type, id, optionally prefixed with -")
+                .get();
+        Room.RoomType roomType = Utils.parseRoomType(ctx.queryParam("type"));
         // entity
-        List<RoomDTO> roomDTOS = dao.readAll();
+        List<RoomDTO> roomDTOS = dao.search(hotelId, roomType, minPrice, maxPrice, sort);
         // response
         ctx.res().setStatus(200);
         ctx.json(roomDTOS, RoomDTO.class);
@@ -48,7 +71,7 @@ public class RoomController implements IController<RoomDTO, Integer> {
         // request
         RoomDTO jsonRequest = validateEntity(ctx);
 
-        int hotelId = ctx.pathParamAsClass("id", Integer.class).check(this::validatePrimaryKey, "Not a valid id").get();
+        int hotelId = ctx.pathParamAsClass("id", Integer.class).get();
         Boolean hasRoom = validateHotelRoomNumber.apply(jsonRequest.getRoomNumber(), hotelId);
 
         if (hasRoom) {
@@ -66,7 +89,7 @@ public class RoomController implements IController<RoomDTO, Integer> {
     @Override
     public void update(Context ctx) {
         // request
-        int id = ctx.pathParamAsClass("id", Integer.class).check(this::validatePrimaryKey, "Not a valid id").get();
+        int id = ctx.pathParamAsClass("id", Integer.class).get();
         // entity
         RoomDTO roomDTO = dao.update(id, validateEntity(ctx));
         // response
@@ -77,7 +100,7 @@ public class RoomController implements IController<RoomDTO, Integer> {
     @Override
     public void delete(Context ctx) {
         // request
-        int id = ctx.pathParamAsClass("id", Integer.class).check(this::validatePrimaryKey, "Not a valid id").get();
+        int id = ctx.pathParamAsClass("id", Integer.class).get();
         // entity
         dao.delete(id);
         // response
@@ -90,6 +113,10 @@ public class RoomController implements IController<RoomDTO, Integer> {
     // Checks if the room number is already in use by the hotel
     BiFunction<Integer, Integer, Boolean> validateHotelRoomNumber = (roomNumber, hotelId) -> dao.validateHotelRoomNumber(roomNumber, hotelId);
 
+    private static BigDecimal toBigDecimal(Double value) {
+        return value == null ? null : BigDecimal.valueOf(value);
+    }
+
     @Override
     public RoomDTO validateEntity(Context ctx) {
         return ctx.bodyValidator(RoomDTO.class)
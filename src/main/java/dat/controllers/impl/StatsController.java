@@ -0,0 +1,97 @@
+package dat.controllers.impl;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import dat.config.HibernateConfig;
+import dat.config.MetricsConfig;
+import dat.daos.impl.HotelDAO;
+import dat.daos.impl.RoomDAO;
+import dat.security.utils.PasswordHasher;
+import io.javalin.http.Context;
+import io.prometheus.client.exporter.common.TextFormat;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.stat.Statistics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class StatsController {
+
+    private final HotelDAO hotelDAO;
+    private final RoomDAO roomDAO;
+
+    public StatsController() {
+        EntityManagerFactory emf = HibernateConfig.getEntityManagerFactory();
+        this.hotelDAO = HotelDAO.getInstance(emf);
+        this.roomDAO = RoomDAO.getInstance(emf);
+    }
+
+    // Prometheus text format: request latency histograms, JVM and pool metrics
+    public void metrics(Context ctx) {
+        // response
+        ctx.res().setStatus(200);
+        ctx.contentType(TextFormat.CONTENT_TYPE_004);
+        ctx.result(MetricsConfig.getRegistry().scrape());
+    }
+
+    // Hit/miss counters for the DTO and response caches in front of the DAOs
+    public void cacheStats(Context ctx) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put(hotelDAO.getCache().getName(), hotelDAO.getCache().getStats());
+        stats.put(roomDAO.getCache().getName(), roomDAO.getCache().getStats());
+        stats.put(hotelDAO.getResponses().getName(), hotelDAO.getResponses().getStats());
+        stats.put(hotelDAO.getPageResponses().getName(), hotelDAO.getPageResponses().getStats());
+        // response
+        ctx.res().setStatus(200);
+        ctx.json(stats);
+    }
+
+    // Second-level and query cache hit ratios plus the number of statements sent to the database
+    public void hibernateStats(Context ctx) {
+        Statistics statistics = HibernateConfig.getStatistics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", statistics.isStatisticsEnabled());
+        stats.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        stats.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        stats.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        stats.put("secondLevelCacheHitRatio", ratio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount()));
+        stats.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        stats.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        stats.put("queryCacheHitRatio", ratio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount()));
+        stats.put("entityLoads", statistics.getEntityLoadCount());
+        stats.put("collectionLoads", statistics.getCollectionLoadCount());
+        stats.put("queryExecutions", statistics.getQueryExecutionCount());
+        stats.put("preparedStatements", statistics.getPrepareStatementCount());
+        // response
+        ctx.res().setStatus(200);
+        ctx.json(stats);
+    }
+
+    // Connection pool usage. threadsAwaitingConnection > 0 means requests are queueing for a connection
+    public void poolStats(Context ctx) {
+        HikariDataSource dataSource = HibernateConfig.getDataSource();
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("poolName", dataSource.getPoolName());
+        stats.put("maximumPoolSize", dataSource.getMaximumPoolSize());
+        stats.put("minimumIdle", dataSource.getMinimumIdle());
+        stats.put("activeConnections", pool.getActiveConnections());
+        stats.put("idleConnections", pool.getIdleConnections());
+        stats.put("totalConnections", pool.getTotalConnections());
+        stats.put("threadsAwaitingConnection", pool.getThreadsAwaitingConnection());
+        // response
+        ctx.res().setStatus(200);
+        ctx.json(stats);
+    }
+
+    // Password hashing pool: queue depth, rejections and BCrypt latency
+    public void authStats(Context ctx) {
+        // response
+        ctx.res().setStatus(200);
+        ctx.json(PasswordHasher.getInstance().getStats());
+    }
+
+    private static double ratio(long hits, long misses) {
+        return hits + misses == 0 ? 0.0 : (double) hits / (hits + misses);
+    }
+}
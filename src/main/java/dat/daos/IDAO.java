@@ -1,10 +1,12 @@
 package dat.daos;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface IDAO<T, I> {
 
     T read(I i);
+    Optional<T> find(I i); // empty when no entity has the key
     List<T> readAll();
     T create(T t);
     T update(I i, T t);
@@ -0,0 +1,124 @@
+package dat.daos.impl;
+
+import dat.dtos.RoomDTO;
+import dat.entities.Room;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory availability index. Every room keeps its bookings as non-overlapping [from, to) date ranges
+ * keyed by check-in day, so checking a room is a single floor lookup instead of a SQL range scan.
+ * It is built from the database on first use and kept up to date by the DAO write paths.
+ */
+class AvailabilityIndex {
+
+    private static AvailabilityIndex instance;
+
+    private final Map<Integer, Map<Integer, RoomSlot>> hotels = new ConcurrentHashMap<>();
+    private final Map<Integer, RoomSlot> rooms = new ConcurrentHashMap<>();
+
+    private static class RoomSlot {
+        private final int hotelId;
+        private volatile RoomDTO room;
+        private final ConcurrentNavigableMap<LocalDate, LocalDate> bookings = new ConcurrentSkipListMap<>();
+
+        private RoomSlot(int hotelId) {
+            this.hotelId = hotelId;
+        }
+
+        // Bookings never overlap, so only the last booking starting before 'to' can reach into [from, to)
+        private boolean isFree(LocalDate from, LocalDate to) {
+            Map.Entry<LocalDate, LocalDate> previous = bookings.lowerEntry(to);
+            return previous == null || !previous.getValue().isAfter(from);
+        }
+    }
+
+    static synchronized AvailabilityIndex getInstance(EntityManagerFactory emf) {
+        if (instance == null) {
+            instance = new AvailabilityIndex();
+            instance.load(emf);
+        }
+        return instance;
+    }
+
+    // Past bookings cannot collide with new ones, so only bookings that end after today are loaded
+    private void load(EntityManagerFactory emf) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.createQuery("SELECT r.hotel.id, r.roomId, r.roomNumber, r.roomPrice, r.roomType FROM Room r", Object[].class)
+                    .getResultList()
+                    .forEach(row -> putRoom((Integer) row[0], new RoomDTO((Integer) row[1], (Integer) row[2], (BigDecimal) row[3], (Room.RoomType) row[4])));
+            em.createQuery("SELECT b.room.roomId, b.fromDate, b.toDate FROM Booking b WHERE b.toDate > :today", Object[].class)
+                    .setParameter("today", LocalDate.now())
+                    .getResultList()
+                    .forEach(row -> addBooking((Integer) row[0], (LocalDate) row[1], (LocalDate) row[2]));
+        }
+    }
+
+    void putRoom(int hotelId, RoomDTO room) {
+        RoomSlot slot = rooms.computeIfAbsent(room.getId(), id -> new RoomSlot(hotelId));
+        slot.room = room;
+        hotels.computeIfAbsent(hotelId, id -> new ConcurrentHashMap<>()).put(room.getId(), slot);
+    }
+
+    void removeRoom(int roomId) {
+        RoomSlot slot = rooms.remove(roomId);
+        if (slot != null) {
+            Map<Integer, RoomSlot> hotelRooms = hotels.get(slot.hotelId);
+            if (hotelRooms != null) {
+                hotelRooms.remove(roomId);
+            }
+        }
+    }
+
+    void removeHotel(int hotelId) {
+        Map<Integer, RoomSlot> hotelRooms = hotels.remove(hotelId);
+        if (hotelRooms != null) {
+            hotelRooms.keySet().forEach(rooms::remove);
+        }
+    }
+
+    boolean hasRoom(int roomId) {
+        return rooms.containsKey(roomId);
+    }
+
+    boolean isFree(int roomId, LocalDate from, LocalDate to) {
+        RoomSlot slot = rooms.get(roomId);
+        return slot != null && slot.isFree(from, to);
+    }
+
+    void addBooking(int roomId, LocalDate from, LocalDate to) {
+        RoomSlot slot = rooms.get(roomId);
+        if (slot != null) {
+            slot.bookings.put(from, to);
+        }
+    }
+
+    void removeBooking(int roomId, LocalDate from) {
+        RoomSlot slot = rooms.get(roomId);
+        if (slot != null) {
+            slot.bookings.remove(from);
+        }
+    }
+
+    List<RoomDTO> findAvailable(int hotelId, LocalDate from, LocalDate to, Room.RoomType type) {
+        List<RoomDTO> available = new ArrayList<>();
+        for (RoomSlot slot : hotels.getOrDefault(hotelId, Map.of()).values()) {
+            RoomDTO room = slot.room;
+            if ((type == null || room.getRoomType() == type) && slot.isFree(from, to)) {
+                available.add(room);
+            }
+        }
+        available.sort(Comparator.comparing(RoomDTO::getRoomNumber));
+        return available;
+    }
+}
@@ -0,0 +1,170 @@
+package dat.daos.impl;
+
+import dat.config.AppConfig;
+import dat.dtos.BookingDTO;
+import dat.dtos.RoomDTO;
+import dat.entities.Booking;
+import dat.entities.Room;
+import dat.security.exceptions.ApiException;
+import dat.utils.StripedLocks;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.RollbackException;
+import lombok.NoArgsConstructor;
+import org.hibernate.StaleStateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@NoArgsConstructor(access = lombok.AccessLevel.PRIVATE)
+public class BookingDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingDAO.class);
+    private static final String EXCLUSION_VIOLATION = "23P01";
+    private static final String OVERLAP_CONSTRAINT = "booking_no_overlap";
+    private static final int MAX_ATTEMPTS = AppConfig.getInstance().getInt("BOOKING_MAX_ATTEMPTS", 3);
+    private static final StripedLocks locks = new StripedLocks(AppConfig.getInstance().getInt("BOOKING_LOCK_STRIPES", 256));
+
+    private static BookingDAO instance;
+    private static EntityManagerFactory emf;
+    private static AvailabilityIndex index;
+
+    // Building the instance also builds the availability index from the database
+    public static BookingDAO getInstance(EntityManagerFactory _emf) {
+        if (instance == null) {
+            emf = _emf;
+            verifyOverlapGuard();
+            index = AvailabilityIndex.getInstance(emf);
+            instance = new BookingDAO();
+        }
+        return instance;
+    }
+
+    // The exclusion constraint is what stops double bookings between instances. It is only created together with
+    // the schema (import.sql), so a validated schema without it must be upgraded with db/upgrade.sql first.
+    // Other databases (H2 in the load test) have no exclusion constraints and rely on the locks and room versions
+    private static void verifyOverlapGuard() {
+        Object dialect = emf.getProperties().get("hibernate.dialect");
+        if (dialect == null || !dialect.toString().contains("PostgreSQL")) {
+            return;
+        }
+        try (EntityManager em = emf.createEntityManager()) {
+            boolean present = !em.createNativeQuery("SELECT 1 FROM pg_constraint WHERE conname = :name")
+                    .setParameter("name", OVERLAP_CONSTRAINT)
+                    .getResultList()
+                    .isEmpty();
+            if (!present) {
+                throw new IllegalStateException("Constraint " + OVERLAP_CONSTRAINT + " is missing from the booking table. Apply db/upgrade.sql before starting the API");
+            }
+        }
+    }
+
+    // Answered from the availability index, no database access
+    public List<RoomDTO> findAvailableRooms(Integer hotelId, LocalDate from, LocalDate to, Room.RoomType roomType) {
+        return index.findAvailable(hotelId, from, to, roomType);
+    }
+
+    public Optional<BookingDTO> find(Integer integer) {
+        try (EntityManager em = emf.createEntityManager()) {
+            Booking booking = em.find(Booking.class, integer);
+            return Optional.ofNullable(booking).map(BookingDTO::new);
+        }
+    }
+
+    public BookingDTO create(BookingDTO bookingDTO, String username) {
+        int roomId = bookingDTO.getRoomId();
+        // one writer per room in this instance; the room version and the exclusion constraint cover other instances
+        return locks.withLock(roomId, () -> {
+            for (int attempt = 1; ; attempt++) {
+                if (!index.hasRoom(roomId)) {
+                    throw new ApiException(404, "No room with id " + roomId);
+                }
+                if (!index.isFree(roomId, bookingDTO.getFrom(), bookingDTO.getTo())) {
+                    throw new ApiException(409, "Room " + roomId + " is already booked in that period");
+                }
+                try {
+                    return persist(roomId, bookingDTO, username);
+                } catch (OptimisticLockException | RollbackException e) {
+                    if (isOverlap(e)) {
+                        throw new ApiException(409, "Room " + roomId + " is already booked in that period");
+                    }
+                    if (!isOptimisticLockFailure(e) || attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    logger.debug("Optimistic lock failure booking room {}, attempt {}", roomId, attempt);
+                }
+            }
+        });
+    }
+
+    private BookingDTO persist(int roomId, BookingDTO bookingDTO, String username) {
+        try (EntityManager em = emf.createEntityManager()) {
+            em.getTransaction().begin();
+            try {
+                // increments the room version on commit, so two bookings of the same room cannot both commit
+                Room room = em.find(Room.class, roomId, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+                if (room == null) {
+                    throw new ApiException(404, "No room with id " + roomId);
+                }
+                Booking booking = new Booking(room, bookingDTO.getFrom(), bookingDTO.getTo(), bookingDTO.getGuestName(), username);
+                em.persist(booking);
+                em.getTransaction().commit();
+                index.addBooking(roomId, booking.getFromDate(), booking.getToDate());
+                return new BookingDTO(booking);
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+            }
+        }
+    }
+
+    public void delete(Integer integer) {
+        Integer roomId;
+        try (EntityManager em = emf.createEntityManager()) {
+            Booking booking = em.find(Booking.class, integer);
+            if (booking == null) {
+                throw new ApiException(404, "No booking with id " + integer);
+            }
+            roomId = booking.getRoom().getRoomId();
+        }
+        locks.withLock(roomId, () -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                Booking booking = em.find(Booking.class, integer);
+                if (booking == null) {
+                    throw new ApiException(404, "No booking with id " + integer);
+                }
+                em.getTransaction().begin();
+                em.remove(booking);
+                em.getTransaction().commit();
+                index.removeBooking(roomId, booking.getFromDate());
+                return null;
+            }
+        });
+    }
+
+    private static boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException || t instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // PostgreSQL reports a violated exclusion constraint as SQLState 23P01
+    private static boolean isOverlap(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sqlException && EXCLUSION_VIOLATION.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,22 +1,56 @@
 package dat.daos.impl;
 
+import dat.config.AppConfig;
 import dat.daos.IDAO;
 import dat.dtos.HotelDTO;
+import dat.dtos.ImportResultDTO;
+import dat.dtos.RoomDTO;
 import dat.entities.Hotel;
 import dat.entities.Room;
+import dat.security.exceptions.ApiException;
+import dat.utils.DTOCache;
+import dat.utils.ResponseCache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.TypedQuery;
 import lombok.NoArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
 import org.jetbrains.annotations.NotNull;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @NoArgsConstructor(access = lombok.AccessLevel.PRIVATE)
 public class HotelDAO implements IDAO<HotelDTO, Integer> {
 
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int IMPORT_CHUNK_SIZE = 1000; // hotels + rooms persisted per transaction
+    private static final DTOCache<Integer, HotelDTO> cache = new DTOCache<>("hotels", 10_000, Duration.ofMinutes(10));
+    // Serialized GET /hotels/{id} and GET /hotels page bodies, dropped together with the DTOs above
+    private static final long RESPONSE_CACHE_BYTES = AppConfig.getInstance().getInt("RESPONSE_CACHE_MAX_MB", 64) * 1024L * 1024L;
+    private static final boolean RESPONSE_CACHE_PRECOMPRESS = AppConfig.getInstance().getBoolean("RESPONSE_CACHE_PRECOMPRESS", true);
+    private static final ResponseCache<Integer> responses = new ResponseCache<>("hotel-responses", RESPONSE_CACHE_BYTES / 2, Duration.ofMinutes(10), RESPONSE_CACHE_PRECOMPRESS);
+    private static final ResponseCache<String> pageResponses = new ResponseCache<>("hotel-page-responses", RESPONSE_CACHE_BYTES / 2, Duration.ofMinutes(10), RESPONSE_CACHE_PRECOMPRESS);
+    // Part of every page key and bumped after each committed write. invalidateAll() leaves pages that are still
+    // loading in place, so a page read before a commit could be cached after it; under the new generation it is never read
+    private static final AtomicLong pageGeneration = new AtomicLong();
+    // One row per room (or one row for a hotel without rooms). Read paths build DTOs from these rows
+    // directly, so no Hotel or Room entities are loaded into a persistence context
+    private static final String HOTEL_ROWS = "SELECT h.id, h.hotelName, h.hotelAddress, h.hotelType, h.version, r.roomId, r.roomNumber, r.roomPrice, r.roomType FROM Hotel h LEFT JOIN h.rooms r";
+
     private static HotelDAO instance;
     private static EntityManagerFactory emf;
 
@@ -33,17 +67,166 @@ public class HotelDAO implements IDAO<HotelDTO, Integer> {
 
     @Override
     public HotelDTO read(Integer integer) {
-        try (EntityManager em = emf.createEntityManager()) {
-            Hotel hotel = em.find(Hotel.class, integer);
-            return new HotelDTO(hotel);
-        }
+        return find(integer).orElse(null);
+    }
+
+    @Override
+    public Optional<HotelDTO> find(Integer integer) {
+        return Optional.ofNullable(cache.get(integer, id -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                List<HotelDTO> hotelDTOS = new ArrayList<>(1);
+                collectHotels(em.createQuery(HOTEL_ROWS + " WHERE h.id = :id", Object[].class)
+                        .setParameter("id", id)
+                        .getResultList()
+                        .iterator(), hotelDTOS::add);
+                return hotelDTOS.isEmpty() ? null : hotelDTOS.get(0);
+            }
+        }));
+    }
+
+    // Loads the hotel with the named entity graph as fetch plan, e.g. with or without its rooms
+    static Hotel findHotel(EntityManager em, Integer id, String graph) {
+        return em.find(Hotel.class, id, Map.of(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(graph)));
+    }
+
+    // Drops the cached hotel, including its second-level cache entry. Called on every write that changes
+    // the hotel or one of its rooms
+    public void invalidate(Integer hotelId) {
+        cache.invalidate(hotelId);
+        emf.unwrap(SessionFactory.class).getCache().evictEntityData(Hotel.class, hotelId);
+        responses.invalidate(hotelId);
+        invalidatePages();
+    }
+
+    private static void invalidatePages() {
+        pageGeneration.incrementAndGet();
+        pageResponses.invalidateAll();
+    }
+
+    public DTOCache<Integer, HotelDTO> getCache() {
+        return cache;
+    }
+
+    public ResponseCache<Integer> getResponses() {
+        return responses;
+    }
+
+    public ResponseCache<String> getPageResponses() {
+        return pageResponses;
+    }
+
+    // Key of a page in getPageResponses(). Only valid until the next write, see pageGeneration
+    public String pageKey(int after, int limit, boolean includeRooms) {
+        return pageGeneration.get() + "|" + after + "|" + limit + "|" + includeRooms;
     }
 
     @Override
     public List<HotelDTO> readAll() {
         try (EntityManager em = emf.createEntityManager()) {
-            TypedQuery<HotelDTO> query = em.createQuery("SELECT new dat.dtos.HotelDTO(h) FROM Hotel h", HotelDTO.class);
-            return query.getResultList();
+            List<HotelDTO> hotelDTOS = new ArrayList<>();
+            collectHotels(em.createQuery(HOTEL_ROWS + " ORDER BY h.id", Object[].class)
+                    .getResultList()
+                    .iterator(), hotelDTOS::add);
+            return hotelDTOS;
+        }
+    }
+
+    // Keyset pagination: hotels with id > after, ordered by id. Rooms are only loaded when asked for
+    public List<HotelDTO> readPage(int after, int limit, boolean includeRooms) {
+        try (EntityManager em = emf.createEntityManager()) {
+            List<HotelDTO> hotelDTOS = em.createQuery("SELECT new dat.dtos.HotelDTO(h.id, h.hotelName, h.hotelAddress, h.hotelType, h.version) FROM Hotel h WHERE h.id > :after ORDER BY h.id", HotelDTO.class)
+                    .setParameter("after", after)
+                    .setMaxResults(limit)
+                    .getResultList();
+            if (includeRooms && !hotelDTOS.isEmpty()) {
+                addRooms(em, hotelDTOS);
+            }
+            return hotelDTOS;
+        }
+    }
+
+    // Version of the hotel for conditional GETs: from the cached DTO when there is one, else a primary key lookup
+    public Optional<Long> findVersion(Integer id) {
+        HotelDTO cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.ofNullable(cached.getVersion());
+        }
+        try (EntityManager em = emf.createEntityManager()) {
+            return em.createQuery("SELECT h.version FROM Hotel h WHERE h.id = :id", Long.class)
+                    .setParameter("id", id)
+                    .getResultStream()
+                    .findFirst();
+        }
+    }
+
+    // Identifies the content of a page by its (id, version) pairs, without loading names, addresses or rooms
+    public String pageSignature(int after, int limit, boolean includeRooms) {
+        try (EntityManager em = emf.createEntityManager()) {
+            List<Object[]> rows = em.createQuery("SELECT h.id, h.version FROM Hotel h WHERE h.id > :after ORDER BY h.id", Object[].class)
+                    .setParameter("after", after)
+                    .setMaxResults(limit)
+                    .getResultList();
+            StringBuilder signature = new StringBuilder(pagePrefix(after, limit, includeRooms));
+            rows.forEach(row -> signature.append(row[0]).append(':').append(row[1]).append(','));
+            return signature.toString();
+        }
+    }
+
+    // Same signature built from an already loaded page, so a 200 response carries a matching ETag
+    public static String pageSignature(int after, int limit, boolean includeRooms, List<HotelDTO> page) {
+        StringBuilder signature = new StringBuilder(pagePrefix(after, limit, includeRooms));
+        page.forEach(hotel -> signature.append(hotel.getId()).append(':').append(hotel.getVersion()).append(','));
+        return signature.toString();
+    }
+
+    private static String pagePrefix(int after, int limit, boolean includeRooms) {
+        return "hotels|" + after + "|" + limit + "|" + includeRooms + "|";
+    }
+
+    // Loads the rooms of all the given hotels with one IN query instead of one query per hotel
+    private void addRooms(EntityManager em, List<HotelDTO> hotelDTOS) {
+        Map<Integer, HotelDTO> hotelsById = hotelDTOS.stream().collect(Collectors.toMap(HotelDTO::getId, h -> h));
+        em.createQuery("SELECT r.hotel.id, r.roomId, r.roomNumber, r.roomPrice, r.roomType FROM Room r WHERE r.hotel.id IN :ids", Object[].class)
+                .setParameter("ids", hotelsById.keySet())
+                .getResultList()
+                .forEach(row -> hotelsById.get((Integer) row[0]).getRooms()
+                        .add(new RoomDTO((Integer) row[1], (Integer) row[2], (BigDecimal) row[3], (Room.RoomType) row[4])));
+    }
+
+    // Streams every hotel with its rooms to the consumer through a database cursor.
+    // Rows arrive ordered by hotel, so only the hotel currently being assembled is kept in memory
+    public void exportAll(Consumer<HotelDTO> consumer) {
+        try (EntityManager em = emf.createEntityManager()) {
+            // the PostgreSQL driver only honours the fetch size inside a transaction
+            em.getTransaction().begin();
+            try (Stream<Object[]> rows = em.createQuery(HOTEL_ROWS + " ORDER BY h.id", Object[].class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                    .getResultStream()) {
+                collectHotels(rows.iterator(), consumer);
+            } finally {
+                // nothing was written
+                em.getTransaction().rollback();
+            }
+        }
+    }
+
+    // Groups consecutive HOTEL_ROWS of the same hotel into one HotelDTO and hands each finished hotel on
+    private static void collectHotels(Iterator<Object[]> rows, Consumer<HotelDTO> consumer) {
+        HotelDTO current = null;
+        while (rows.hasNext()) {
+            Object[] row = rows.next();
+            if (current == null || !current.getId().equals(row[0])) {
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                current = new HotelDTO((Integer) row[0], (String) row[1], (String) row[2], (Hotel.HotelType) row[3], (Long) row[4]);
+            }
+            if (row[5] != null) {
+                current.getRooms().add(new RoomDTO((Integer) row[5], (Integer) row[6], (BigDecimal) row[7], (Room.RoomType) row[8]));
+            }
+        }
+        if (current != null) {
+            consumer.accept(current);
         }
     }
 
@@ -54,42 +237,141 @@ public class HotelDAO implements IDAO<HotelDTO, Integer> {
             Hotel hotel = new Hotel(hotelDTO);
             em.persist(hotel);
             em.getTransaction().commit();
+            hotelsCreated(List.of(hotel));
             return new HotelDTO(hotel);
         }
     }
 
-    @Override
-    public HotelDTO update(Integer integer, HotelDTO hotelDTO) {
+    // Persists the hotels and their rooms in chunked transactions. The persistence context is cleared
+    // after every chunk, so memory use stays flat. Each hotel is validated before it is persisted; an invalid
+    // one rolls back its chunk and fails the import with a 400. Chunks committed before that are kept
+    public ImportResultDTO bulkImport(Iterator<HotelDTO> hotelDTOS) {
+        int hotelCount = 0;
+        int roomCount = 0;
+        int committed = 0;
+        int pending = 0;
+        List<Hotel> chunk = new ArrayList<>();
         try (EntityManager em = emf.createEntityManager()) {
             em.getTransaction().begin();
-            Hotel h = em.find(Hotel.class, integer);
-            h.setHotelName(hotelDTO.getHotelName());
-            h.setHotelAddress(hotelDTO.getHotelAddress());
-            h.setHotelType(hotelDTO.getHotelType());
-            Hotel mergedHotel = em.merge(h);
-            em.getTransaction().commit();
-            return mergedHotel != null ? new HotelDTO(mergedHotel) : null;
+            try {
+                while (hotelDTOS.hasNext()) {
+                    HotelDTO hotelDTO = hotelDTOS.next();
+                    validateImport(hotelCount, hotelDTO, committed);
+                    Hotel hotel = new Hotel(hotelDTO.getHotelName(), hotelDTO.getHotelAddress(), hotelDTO.getHotelType());
+                    if (hotelDTO.getRooms() != null) {
+                        hotelDTO.getRooms().forEach(roomDTO -> hotel.addRoom(new Room(roomDTO.getRoomNumber(), BigDecimal.valueOf(roomDTO.getRoomPrice()), roomDTO.getRoomType())));
+                    }
+                    em.persist(hotel);
+                    chunk.add(hotel);
+                    hotelCount++;
+                    roomCount += hotel.getRooms().size();
+                    pending += 1 + hotel.getRooms().size();
+                    if (pending >= IMPORT_CHUNK_SIZE) {
+                        em.getTransaction().commit();
+                        hotelsCreated(chunk);
+                        committed = hotelCount;
+                        chunk.clear();
+                        em.clear();
+                        em.getTransaction().begin();
+                        pending = 0;
+                    }
+                }
+                em.getTransaction().commit();
+                hotelsCreated(chunk);
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+            }
+        }
+        return new ImportResultDTO(hotelCount, roomCount);
+    }
+
+    // Same rules as the single hotel and room endpoints. The message names the failing hotel by its position
+    // in the import and says how many hotels before it were already committed
+    private static void validateImport(int index, HotelDTO hotelDTO, int committed) {
+        String error = null;
+        if (hotelDTO == null) {
+            error = "hotel is null";
+        } else if (hotelDTO.getHotelName() == null || hotelDTO.getHotelName().isEmpty()) {
+            error = "hotel name must be set";
+        } else if (hotelDTO.getHotelAddress() == null || hotelDTO.getHotelAddress().isEmpty()) {
+            error = "hotel address must be set";
+        } else if (hotelDTO.getHotelType() == null) {
+            error = "hotel type must be set";
+        } else if (hotelDTO.getRooms() != null) {
+            // rooms arrive as a set, so they are named by room number rather than position
+            for (RoomDTO roomDTO : hotelDTO.getRooms()) {
+                if (roomDTO.getRoomNumber() == null || roomDTO.getRoomNumber() <= 0) {
+                    error = "a room has no valid room number";
+                } else if (roomDTO.getRoomType() == null) {
+                    error = "room " + roomDTO.getRoomNumber() + " has no valid room type";
+                } else if (roomDTO.getRoomPrice() == null) {
+                    error = "room " + roomDTO.getRoomNumber() + " has no valid price";
+                }
+                if (error != null) {
+                    break;
+                }
+            }
+        }
+        if (error != null) {
+            throw new ApiException(400, "Hotel at index " + index + ": " + error + ". " + committed + " hotels before it were imported");
         }
     }
 
+    // A single UPDATE ... WHERE hotel_id = ? on a stateless session. Neither the hotel nor its rooms are loaded.
+    // Native so that only this hotel is evicted from the second-level cache, by invalidate.
+    // Returns the updated hotel without rooms, whatever happens to be cached
+    @Override
+    public HotelDTO update(Integer integer, HotelDTO hotelDTO) {
+        if (hotelDTO.getHotelName() == null || hotelDTO.getHotelAddress() == null || hotelDTO.getHotelType() == null) {
+            throw new ApiException(400, "Hotel name, address and type must be set");
+        }
+        try (StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                int updated = session.createNativeQuery("UPDATE hotel SET hotel_name = :hotelName, hotel_address = :hotelAddress, hotel_type = :hotelType, version = version + 1 WHERE hotel_id = :id")
+                        .setParameter("hotelName", hotelDTO.getHotelName())
+                        .setParameter("hotelAddress", hotelDTO.getHotelAddress())
+                        .setParameter("hotelType", hotelDTO.getHotelType().name())
+                        .setParameter("id", integer)
+                        .addSynchronizedQuerySpace(RoomDAO.NO_CACHED_DATA)
+                        .executeUpdate();
+                if (updated == 0) {
+                    throw new ApiException(404, "No hotel with id " + integer);
+                }
+                transaction.commit();
+            } finally {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+            }
+        }
+        invalidate(integer);
+        return new HotelDTO(integer, hotelDTO.getHotelName(), hotelDTO.getHotelAddress(), hotelDTO.getHotelType(), (Set<RoomDTO>) null);
+    }
+
     @Override
     public void delete(Integer integer) {
         try (EntityManager em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            Hotel hotel = em.find(Hotel.class, integer);
-            if (hotel != null) {
-                em.remove(hotel);
+            // removing cascades to the rooms, so load them with the hotel rather than one by one
+            Hotel hotel = findHotel(em, integer, Hotel.GRAPH_WITH_ROOMS);
+            if (hotel == null) {
+                throw new ApiException(404, "No hotel with id " + integer);
             }
+            em.getTransaction().begin();
+            em.remove(hotel);
             em.getTransaction().commit();
+            invalidate(integer);
+            RoomDAO roomDAO = RoomDAO.getInstance(emf);
+            hotel.getRooms().forEach(room -> roomDAO.invalidate(room.getRoomId()));
+            AvailabilityIndex.getInstance(emf).removeHotel(integer);
         }
     }
 
     @Override
     public boolean validatePrimaryKey(Integer integer) {
-        try (EntityManager em = emf.createEntityManager()) {
-            Hotel hotel = em.find(Hotel.class, integer);
-            return hotel != null;
-        }
+        return findVersion(integer).isPresent();
     }
 
     public void populate() {
@@ -106,9 +388,17 @@ public class HotelDAO implements IDAO<HotelDTO, Integer> {
             em
                     .getTransaction()
                     .commit();
+            hotelsCreated(List.of(california, hilton));
         }
     }
 
+    // Makes newly committed rooms bookable in the availability index. Cached list pages may now be incomplete
+    private void hotelsCreated(List<Hotel> hotels) {
+        invalidatePages();
+        AvailabilityIndex index = AvailabilityIndex.getInstance(emf);
+        hotels.forEach(hotel -> hotel.getRooms().forEach(room -> index.putRoom(hotel.getId(), new RoomDTO(room))));
+    }
+
     private static Set<Room> getCalRooms() {
         Room r100 = new Room(100, new BigDecimal(2520), Room.RoomType.SINGLE);
         Room r101 = new Room(101, new BigDecimal(2520), Room.RoomType.SINGLE);
@@ -6,18 +6,51 @@ import dat.dtos.HotelDTO;
 import dat.dtos.RoomDTO;
 import dat.entities.Hotel;
 import dat.entities.Room;
+import dat.security.exceptions.ApiException;
+import dat.utils.DTOCache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import lombok.NoArgsConstructor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.jpa.HibernateHints;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 @NoArgsConstructor(access = lombok.AccessLevel.PRIVATE)
 public class RoomDAO implements IDAO<RoomDTO, Integer> {
 
+    private static final DTOCache<Integer, RoomDTO> cache = new DTOCache<>("rooms", 50_000, Duration.ofMinutes(10));
+    private static final String UNIQUE_VIOLATION = "23505";
+    // Bulk HQL and native updates evict every cache region they might touch, i.e. all hotels or all rooms.
+    // Naming this query space instead tells Hibernate none are affected; the DAOs evict the changed rows themselves
+    static final String NO_CACHED_DATA = "";
+
+    // sort keys accepted by search, mapped to Room attributes. A leading '-' sorts descending
+    private static final Map<String, String> SORT_ATTRIBUTES = Map.of(
+            "price", "roomPrice",
+            "number", "roomNumber",
+            "type", "roomType",
+            "id", "roomId");
+
     private static RoomDAO instance;
     private static EntityManagerFactory emf;
 
@@ -29,35 +62,124 @@ public class RoomDAO implements IDAO<RoomDTO, Integer> {
         return instance;
     }
 
+    // Single-row insert through a stateless session. The hotel's other rooms are neither loaded nor rewritten.
+    // Returns the hotel with the new room added to the cached rooms, or without rooms when the hotel was not cached.
+    // The hotel is never read back
     public HotelDTO addRoomToHotel(Integer hotelId, RoomDTO roomDTO ) {
-        try (EntityManager em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-            Room room = new Room(roomDTO);
-            Hotel hotel = em.find(Hotel.class, hotelId);
-            hotel.addRoom(room);
-            em.persist(room);
-            Hotel mergedHotel = em.merge(hotel);
-            em.getTransaction().commit();
-            return new HotelDTO(mergedHotel);
+        Room room = inStatelessTransaction(session -> {
+            Hotel hotel = session.get(Hotel.class, hotelId);
+            if (hotel == null) {
+                throw new ApiException(404, "No hotel with id " + hotelId);
+            }
+            Room inserted = new Room(roomDTO.getRoomNumber(), BigDecimal.valueOf(roomDTO.getRoomPrice()), roomDTO.getRoomType());
+            inserted.setHotel(hotel);
+            session.insert(inserted);
+            bumpHotelVersion(session, hotelId);
+            return inserted;
+        });
+        RoomDTO created = new RoomDTO(room);
+        Hotel hotel = room.getHotel();
+        // read before roomsChanged drops it. Copied, the cached DTO is shared with readers
+        HotelDTO cached = HotelDAO.getInstance(emf).getCache().getIfPresent(hotelId);
+        Set<RoomDTO> rooms = null;
+        if (cached != null && cached.getRooms() != null) {
+            rooms = new HashSet<>(cached.getRooms());
+            rooms.add(created);
         }
+        roomsChanged(hotelId);
+        AvailabilityIndex.getInstance(emf).putRoom(hotelId, created);
+        return new HotelDTO(hotelId, hotel.getHotelName(), hotel.getHotelAddress(), hotel.getHotelType(), rooms);
     }
 
     @Override
     public RoomDTO read(Integer integer) {
+        return find(integer).orElse(null);
+    }
+
+    @Override
+    public Optional<RoomDTO> find(Integer integer) {
+        return Optional.ofNullable(cache.get(integer, id -> {
+            try (EntityManager em = emf.createEntityManager()) {
+                return em.createQuery("SELECT new dat.dtos.RoomDTO(r.roomId, r.roomNumber, r.roomPrice, r.roomType, r.version) FROM Room r WHERE r.roomId = :id", RoomDTO.class)
+                        .setParameter("id", id)
+                        .getResultStream()
+                        .findFirst()
+                        .orElse(null);
+            }
+        }));
+    }
+
+    // Version of the room for conditional GETs: from the cached DTO when there is one, else a primary key lookup
+    public Optional<Long> findVersion(Integer id) {
+        RoomDTO cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return Optional.ofNullable(cached.getVersion());
+        }
         try (EntityManager em = emf.createEntityManager()) {
-            Room room = em.find(Room.class, integer);
-            return room != null ? new RoomDTO(room) : null;
+            return em.createQuery("SELECT r.version FROM Room r WHERE r.roomId = :id", Long.class)
+                    .setParameter("id", id)
+                    .getResultStream()
+                    .findFirst();
         }
     }
 
+    // Drops the cached room, including its second-level cache entry. The owning hotel has to be invalidated separately
+    public void invalidate(Integer roomId) {
+        cache.invalidate(roomId);
+        emf.unwrap(SessionFactory.class).getCache().evictEntityData(Room.class, roomId);
+    }
+
+    public DTOCache<Integer, RoomDTO> getCache() {
+        return cache;
+    }
+
     @Override
     public List<RoomDTO> readAll() {
         try (EntityManager em = emf.createEntityManager()) {
-            TypedQuery<RoomDTO> query = em.createQuery("SELECT new dat.dtos.RoomDTO(r) FROM Room r", RoomDTO.class);
+            TypedQuery<RoomDTO> query = em.createQuery("SELECT new dat.dtos.RoomDTO(r.roomId, r.roomNumber, r.roomPrice, r.roomType) FROM Room r", RoomDTO.class);
             return query.getResultList();
         }
     }
 
+    public static boolean isSortKey(String sort) {
+        return SORT_ATTRIBUTES.containsKey(sort.startsWith("-") ? sort.substring(1) : sort);
+    }
+
+    // Filtered search, every argument is optional. Projects straight into RoomDTO so no entities are loaded
+    public List<RoomDTO> search(Integer hotelId, Room.RoomType roomType, BigDecimal minPrice, BigDecimal maxPrice, String sort) {
+        try (EntityManager em = emf.createEntityManager()) {
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<RoomDTO> cq = cb.createQuery(RoomDTO.class);
+            Root<Room> room = cq.from(Room.class);
+            cq.select(cb.construct(RoomDTO.class, room.get("roomId"), room.get("roomNumber"), room.get("roomPrice"), room.get("roomType")));
+
+            List<Predicate> predicates = new ArrayList<>();
+            if (hotelId != null) {
+                predicates.add(cb.equal(room.get("hotel").get("id"), hotelId));
+            }
+            if (roomType != null) {
+                predicates.add(cb.equal(room.get("roomType"), roomType));
+            }
+            if (minPrice != null) {
+                predicates.add(cb.greaterThanOrEqualTo(room.get("roomPrice"), minPrice));
+            }
+            if (maxPrice != null) {
+                predicates.add(cb.lessThanOrEqualTo(room.get("roomPrice"), maxPrice));
+            }
+            cq.where(predicates.toArray(Predicate[]::new));
+
+            String key = sort == null ? "id" : sort;
+            boolean descending = key.startsWith("-");
+            Expression<?> sortBy = room.get(SORT_ATTRIBUTES.get(descending ? key.substring(1) : key));
+            // room id as tie breaker keeps the order stable between calls
+            cq.orderBy(descending ? cb.desc(sortBy) : cb.asc(sortBy), cb.asc(room.get("roomId")));
+
+            return em.createQuery(cq)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .getResultList();
+        }
+    }
+
     @Override
     public RoomDTO create(RoomDTO roomDTO) {
         try (EntityManager em = emf.createEntityManager()) {
@@ -69,53 +191,110 @@ public class RoomDAO implements IDAO<RoomDTO, Integer> {
         }
     }
 
+    // One UPDATE ... WHERE room_id = ? that also bumps the version, so it conflicts with concurrent bookings.
+    // Native rather than HQL so only this room is evicted from the second-level cache (see NO_CACHED_DATA).
+    // The response is built from the request instead of reloading the room
     @Override
     public RoomDTO update(Integer integer, RoomDTO roomDTO) {
-        try (EntityManager em = emf.createEntityManager()) {
-            em.getTransaction().begin();
-
-            Room r = em.find(Room.class, integer);
-            r.setRoomNumber(roomDTO.getRoomNumber());
-            r.setRoomType(roomDTO.getRoomType());
-            r.setRoomPrice(BigDecimal.valueOf(roomDTO.getRoomPrice()));
-            Room mergedRoom = em.merge(r);
-            em.getTransaction().commit();
-            return new RoomDTO(mergedRoom);
-        }
+        Integer hotelId = inStatelessTransaction(session -> {
+            Integer owner = session.createQuery("SELECT r.hotel.id FROM Room r WHERE r.roomId = :id", Integer.class)
+                    .setParameter("id", integer)
+                    .uniqueResult();
+            if (owner == null) {
+                throw new ApiException(404, "No room with id " + integer);
+            }
+            int updated = session.createNativeQuery("UPDATE room SET room_number = :roomNumber, room_type = :roomType, price = :roomPrice, version = version + 1 WHERE room_id = :id")
+                    .setParameter("roomNumber", roomDTO.getRoomNumber())
+                    .setParameter("roomType", roomDTO.getRoomType().name())
+                    .setParameter("roomPrice", BigDecimal.valueOf(roomDTO.getRoomPrice()))
+                    .setParameter("id", integer)
+                    .addSynchronizedQuerySpace(NO_CACHED_DATA)
+                    .executeUpdate();
+            // deleted between the lookup and the update
+            if (updated == 0) {
+                throw new ApiException(404, "No room with id " + integer);
+            }
+            bumpHotelVersion(session, owner);
+            return owner;
+        });
+        RoomDTO updated = new RoomDTO(integer, roomDTO.getRoomNumber(), BigDecimal.valueOf(roomDTO.getRoomPrice()), roomDTO.getRoomType());
+        invalidate(integer);
+        roomsChanged(hotelId);
+        AvailabilityIndex.getInstance(emf).putRoom(hotelId, updated);
+        return updated;
     }
 
     @Override
     public void delete(Integer integer) {
         try (EntityManager em = emf.createEntityManager()) {
-            em.getTransaction().begin();
             Room room = em.find(Room.class, integer);
-            if (room != null){
-                em.remove(room);
+            if (room == null) {
+                throw new ApiException(404, "No room with id " + integer);
             }
+            em.getTransaction().begin();
+            em.remove(room);
+            bumpHotelVersion(em.unwrap(Session.class), room.getHotel().getId());
             em.getTransaction().commit();
+            invalidate(integer);
+            roomsChanged(room.getHotel().getId());
+            AvailabilityIndex.getInstance(emf).removeRoom(integer);
         }
     }
 
     @Override
     public boolean validatePrimaryKey(Integer integer) {
-        try (EntityManager em = emf.createEntityManager()) {
-            Room room = em.find(Room.class, integer);
-            return room != null;
-        }
+        return read(integer) != null;
     }
 
-    public Function<Integer, Boolean> validateHotelRoomNumber = (roomNumber) -> {
+    // Single lookup on the (hotel_id, room_number) unique index instead of loading the hotel and its rooms
+    public Boolean validateHotelRoomNumber(Integer roomNumber, Integer hotelId) {
+        HotelDAO.getInstance(emf).find(hotelId).orElseThrow(() -> new ApiException(404, "No hotel with id " + hotelId));
         try (EntityManager em = emf.createEntityManager()) {
-            Room room = em.find(Room.class, roomNumber);
-            return room != null;
+            return !em.createQuery("SELECT 1 FROM Room r WHERE r.hotel.id = :hotelId AND r.roomNumber = :roomNumber", Integer.class)
+                    .setParameter("hotelId", hotelId)
+                    .setParameter("roomNumber", roomNumber)
+                    .setMaxResults(1)
+                    .getResultList()
+                    .isEmpty();
         }
-    };
+    }
 
-    public Boolean validateHotelRoomNumber(Integer roomNumber, Integer hotelId) {
-        try (EntityManager em = emf.createEntityManager()) {
-            Hotel hotel = em.find(Hotel.class, hotelId);
-            return hotel.getRooms().stream().anyMatch(r -> r.getRoomNumber().equals(roomNumber));
+    // Runs the work in its own transaction on a stateless session: no persistence context, no dirty checking.
+    // The unique constraint still catches two requests giving a hotel the same room number at once
+    private static <T> T inStatelessTransaction(Function<StatelessSession, T> work) {
+        try (StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                T result = work.apply(session);
+                transaction.commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                for (Throwable t = e; t != null; t = t.getCause()) {
+                    if (t instanceof SQLException sqlException && UNIQUE_VIOLATION.equals(sqlException.getSQLState())) {
+                        throw new ApiException(400, "Room number already in use by hotel");
+                    }
+                }
+                throw e;
+            }
         }
     }
 
+    // The hotel's rooms are part of its representation, so room writes change the hotel's ETag as well.
+    // Only the one hotel is evicted afterwards, by HotelDAO.invalidate through roomsChanged
+    private static void bumpHotelVersion(SharedSessionContract session, Integer hotelId) {
+        session.createNativeQuery("UPDATE hotel SET version = version + 1 WHERE hotel_id = :id")
+                .setParameter("id", hotelId)
+                .addSynchronizedQuerySpace(NO_CACHED_DATA)
+                .executeUpdate();
+    }
+
+    // Rooms of the hotel were added, changed or removed. The hotel DTO and the cached rooms collection are stale
+    private static void roomsChanged(Integer hotelId) {
+        HotelDAO.getInstance(emf).invalidate(hotelId);
+        emf.unwrap(SessionFactory.class).getCache().evictCollectionData(Hotel.class.getName() + ".rooms", hotelId);
+    }
+
 }
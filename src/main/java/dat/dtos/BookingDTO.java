@@ -0,0 +1,39 @@
+package dat.dtos;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import dat.entities.Booking;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Getter
+@NoArgsConstructor
+public class BookingDTO {
+
+    private Integer id;
+    private Integer roomId;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate from;
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate to;
+    private String guestName;
+    // set from the booking, never from the request
+    private String username;
+
+    public BookingDTO(Booking booking) {
+        this.id = booking.getId();
+        this.roomId = booking.getRoom().getRoomId();
+        this.from = booking.getFromDate();
+        this.to = booking.getToDate();
+        this.guestName = booking.getGuestName();
+        this.username = booking.getUsername();
+    }
+
+    public BookingDTO(Integer roomId, LocalDate from, LocalDate to, String guestName) {
+        this.roomId = roomId;
+        this.from = from;
+        this.to = to;
+        this.guestName = guestName;
+    }
+}
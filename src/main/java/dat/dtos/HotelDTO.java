@@ -1,5 +1,7 @@
 package dat.dtos;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import dat.entities.Hotel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -17,19 +19,44 @@ public class HotelDTO {
     private String hotelName;
     private String hotelAddress;
     private Hotel.HotelType hotelType;
+    // null when the rooms were not loaded, e.g. after an update. Left out of the JSON then
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<RoomDTO> rooms = new HashSet<>();
+    // entity version behind this DTO, used for the ETag and not part of the JSON
+    @JsonIgnore
+    private Long version;
 
     public HotelDTO(Hotel hotel) {
         this.id = hotel.getId();
         this.hotelName = hotel.getHotelName();
         this.hotelAddress = hotel.getHotelAddress();
         this.hotelType = hotel.getHotelType();
+        this.version = hotel.getVersion();
         if (hotel.getRooms() != null)
         {
             hotel.getRooms().forEach( room -> rooms.add(new RoomDTO(room)));
         }
     }
 
+    // Used by JPQL projections, rooms are attached separately
+    public HotelDTO(Integer id, String hotelName, String hotelAddress, Hotel.HotelType hotelType) {
+        this.id = id;
+        this.hotelName = hotelName;
+        this.hotelAddress = hotelAddress;
+        this.hotelType = hotelType;
+    }
+
+    public HotelDTO(Integer id, String hotelName, String hotelAddress, Hotel.HotelType hotelType, Long version) {
+        this(id, hotelName, hotelAddress, hotelType);
+        this.version = version;
+    }
+
+    // Result of a write that did not load the rooms: the given rooms, or no rooms field at all when null
+    public HotelDTO(Integer id, String hotelName, String hotelAddress, Hotel.HotelType hotelType, Set<RoomDTO> rooms) {
+        this(id, hotelName, hotelAddress, hotelType);
+        this.rooms = rooms;
+    }
+
     public HotelDTO(String hotelName, String hotelAddress, Hotel.HotelType hotelType)
     {
         this.hotelName = hotelName;
@@ -0,0 +1,17 @@
+package dat.dtos;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@NoArgsConstructor
+public class ImportResultDTO {
+
+    private int hotels;
+    private int rooms;
+
+    public ImportResultDTO(int hotels, int rooms) {
+        this.hotels = hotels;
+        this.rooms = rooms;
+    }
+}
@@ -1,10 +1,13 @@
 package dat.dtos;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import dat.entities.Room;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Objects;
 
 @NoArgsConstructor
 @Getter
@@ -13,12 +16,29 @@ public class RoomDTO {
     private Integer roomNumber;
     private Integer roomPrice;
     private Room.RoomType roomType;
+    // entity version behind this DTO, used for the ETag and not part of the JSON
+    @JsonIgnore
+    private Long version;
 
     public RoomDTO(Room room) {
         this.Id = room.getRoomId();
         this.roomNumber = room.getRoomNumber();
         this.roomPrice = room.getRoomPrice().intValue();
         this.roomType = room.getRoomType();
+        this.version = room.getVersion();
+    }
+
+    // Used by JPQL projections
+    public RoomDTO(Integer id, Integer roomNumber, BigDecimal roomPrice, Room.RoomType roomType) {
+        this.Id = id;
+        this.roomNumber = roomNumber;
+        this.roomPrice = roomPrice.intValue();
+        this.roomType = roomType;
+    }
+
+    public RoomDTO(Integer id, Integer roomNumber, BigDecimal roomPrice, Room.RoomType roomType, Long version) {
+        this(id, roomNumber, roomPrice, roomType);
+        this.version = version;
     }
 
     public static List<RoomDTO> toRoomDTOList(List<Room> rooms) {
@@ -33,15 +53,12 @@ public class RoomDTO {
             return false;
 
         RoomDTO roomDTO = (RoomDTO) o;
-        return getId().equals(roomDTO.getId()) && getRoomNumber().equals(roomDTO.getRoomNumber()) && getRoomPrice().equals(roomDTO.getRoomPrice()) && getRoomType() == roomDTO.getRoomType();
+        return Objects.equals(getId(), roomDTO.getId()) && Objects.equals(getRoomNumber(), roomDTO.getRoomNumber()) && Objects.equals(getRoomPrice(), roomDTO.getRoomPrice()) && getRoomType() == roomDTO.getRoomType();
     }
 
+    // Null-safe: rooms sent for creation or import have no id yet
     @Override
     public int hashCode() {
-        int result = getId().hashCode();
-        result = 31 * result + getRoomNumber().hashCode();
-        result = 31 * result + getRoomPrice().hashCode();
-        result = 31 * result + getRoomType().hashCode();
-        return result;
+        return Objects.hash(getId(), getRoomNumber(), getRoomPrice(), getRoomType());
     }
 }
@@ -0,0 +1,51 @@
+package dat.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDate;
+
+@Getter
+@NoArgsConstructor
+@Entity
+@Table(name = "booking", indexes = @Index(name = "idx_booking_room_dates", columnList = "room_id, check_in, check_out"))
+public class Booking {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+    @SequenceGenerator(name = "booking_seq", sequenceName = "booking_seq", allocationSize = 50)
+    @Column(name = "booking_id", nullable = false, unique = true)
+    private Integer id;
+
+    // bookings are removed by the database together with their room
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "room_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Room room;
+
+    // check-in day, inclusive
+    @Column(name = "check_in", nullable = false)
+    private LocalDate fromDate;
+
+    // check-out day, exclusive
+    @Column(name = "check_out", nullable = false)
+    private LocalDate toDate;
+
+    @Column(name = "guest_name", nullable = false)
+    private String guestName;
+
+    // the user who made the booking; only that user and admins can read or cancel it
+    @Column(name = "username")
+    private String username;
+
+    public Booking(Room room, LocalDate fromDate, LocalDate toDate, String guestName, String username) {
+        this.room = room;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.guestName = guestName;
+        this.username = username;
+    }
+}
@@ -5,6 +5,8 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Objects;
@@ -13,11 +15,19 @@ import java.util.Set;
 @Getter
 @NoArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "hotel")
 @Table(name = "hotel")
+// Fetch plans the DAOs pick per operation. Associations are lazy unless a graph asks for them
+@NamedEntityGraph(name = Hotel.GRAPH_WITH_ROOMS, attributeNodes = @NamedAttributeNode("rooms"))
 public class Hotel {
 
+    public static final String GRAPH_WITH_ROOMS = "hotel-with-rooms";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence instead of IDENTITY, so Hibernate can batch inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hotel_seq")
+    @SequenceGenerator(name = "hotel_seq", sequenceName = "hotel_seq", allocationSize = 50)
     @Column(name = "hotel_id", nullable = false, unique = true)
     private Integer id;
 
@@ -34,7 +44,13 @@ public class Hotel {
     @Column(name = "hotel_type", nullable = false)
     private HotelType hotelType;
 
-    @OneToMany(mappedBy = "hotel", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    // bumped by every write to the hotel or one of its rooms, the hotel's ETag is built from it
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "hotel-rooms")
+    @OneToMany(mappedBy = "hotel", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private Set<Room> rooms = new HashSet<>();
 
     public Hotel(String hotelName, String hotelAddress, HotelType hotelType) {
@@ -49,7 +65,7 @@ public class Hotel {
         this.hotelAddress = hotelDTO.getHotelAddress();
         this.hotelType = hotelDTO.getHotelType();
         if (hotelDTO.getRooms() != null) {
-            hotelDTO.getRooms().forEach(roomDTO -> rooms.add(new Room(roomDTO)));
+            hotelDTO.getRooms().forEach(roomDTO -> addRoom(new Room(roomDTO)));
         }
     }
 
@@ -5,6 +5,8 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.util.Objects;
@@ -12,11 +14,21 @@ import java.util.Objects;
 @Getter
 @NoArgsConstructor
 @Entity
-@Table(name = "room")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "room")
+// (hotel_id, room_number) is covered by the unique constraint's index
+@Table(name = "room",
+        uniqueConstraints = @UniqueConstraint(name = "uk_room_hotel_number", columnNames = {"hotel_id", "room_number"}),
+        indexes = {
+                @Index(name = "idx_room_hotel_type", columnList = "hotel_id, room_type"),
+                @Index(name = "idx_room_price", columnList = "price")
+        })
 public class Room {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence instead of IDENTITY, so Hibernate can batch inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "room_seq")
+    @SequenceGenerator(name = "room_seq", sequenceName = "room_seq", allocationSize = 50)
     @Column(name = "room_id", nullable = false, unique = true)
     private Integer roomId;
 
@@ -34,10 +46,15 @@ public class Room {
     private RoomType roomType;
 
     @Setter
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "hotel_id", nullable = false)
     private Hotel hotel;
 
+    // bumped by every booking of the room, so concurrent writers across instances detect each other
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public Room(Integer roomNumber, BigDecimal roomPrice, RoomType roomType) {
         this.roomNumber = roomNumber;
         this.roomPrice = roomPrice;
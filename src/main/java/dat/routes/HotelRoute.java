@@ -1,5 +1,6 @@
 package dat.routes;
 
+import dat.controllers.impl.BookingController;
 import dat.controllers.impl.HotelController;
 import dat.security.enums.Role;
 import io.javalin.apibuilder.EndpointGroup;
@@ -9,14 +10,18 @@ import static io.javalin.apibuilder.ApiBuilder.*;
 public class HotelRoute {
 
     private final HotelController hotelController = new HotelController();
+    private final BookingController bookingController = new BookingController();
 
     protected EndpointGroup getRoutes() {
 
         return () -> {
             get("/populate", hotelController::populate);
             post("/", hotelController::create, Role.USER);
+            post("/bulk", hotelController::bulkImport, Role.ADMIN);
             get("/", hotelController::readAll);
+            get("/export", hotelController::export);
             get("/{id}", hotelController::read);
+            get("/{id}/availability", bookingController::availability);
             put("/{id}", hotelController::update);
             delete("/{id}", hotelController::delete);
         };
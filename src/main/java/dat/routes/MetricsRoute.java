@@ -0,0 +1,20 @@
+package dat.routes;
+
+import dat.controllers.impl.StatsController;
+import dat.security.enums.Role;
+import io.javalin.apibuilder.EndpointGroup;
+
+import static io.javalin.apibuilder.ApiBuilder.*;
+
+public class MetricsRoute {
+
+    private final StatsController statsController = new StatsController();
+
+    protected EndpointGroup getRoutes() {
+
+        // open to the Prometheus scraper, it carries no tokens. Only counts and timings are exposed
+        return () -> {
+            get("/", statsController::metrics, Role.ANYONE);
+        };
+    }
+}
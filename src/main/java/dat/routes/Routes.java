@@ -8,11 +8,17 @@ public class Routes {
 
     private final HotelRoute hotelRoute = new HotelRoute();
     private final RoomRoute roomRoute = new RoomRoute();
+    private final BookingRoute bookingRoute = new BookingRoute();
+    private final StatsRoute statsRoute = new StatsRoute();
+    private final MetricsRoute metricsRoute = new MetricsRoute();
 
     public EndpointGroup getRoutes() {
         return () -> {
                 path("/hotels", hotelRoute.getRoutes());
                 path("/rooms", roomRoute.getRoutes());
+                path("/bookings", bookingRoute.getRoutes());
+                path("/stats", statsRoute.getRoutes());
+                path("/metrics", metricsRoute.getRoutes());
         };
     }
 }
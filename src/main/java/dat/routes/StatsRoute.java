@@ -0,0 +1,22 @@
+package dat.routes;
+
+import dat.controllers.impl.StatsController;
+import dat.security.enums.Role;
+import io.javalin.apibuilder.EndpointGroup;
+
+import static io.javalin.apibuilder.ApiBuilder.*;
+
+public class StatsRoute {
+
+    private final StatsController statsController = new StatsController();
+
+    protected EndpointGroup getRoutes() {
+
+        return () -> {
+            get("/cache", statsController::cacheStats, Role.ADMIN);
+            get("/hibernate", statsController::hibernateStats, Role.ADMIN);
+            get("/pool", statsController::poolStats, Role.ADMIN);
+            get("/auth", statsController::authStats, Role.ADMIN);
+        };
+    }
+}
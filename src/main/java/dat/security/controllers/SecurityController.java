@@ -2,8 +2,12 @@ package dat.security.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.nimbusds.jose.JOSEException;
-import dat.utils.Utils;
+import com.nimbusds.jwt.SignedJWT;
+import dat.config.AppConfig;
 import dat.config.HibernateConfig;
 import dat.security.daos.ISecurityDAO;
 import dat.security.daos.SecurityDAO;
@@ -11,6 +15,7 @@ import dat.security.entities.User;
 import dat.security.exceptions.ApiException;
 import dat.security.exceptions.NotAuthorizedException;
 import dat.security.exceptions.ValidationException;
+import dat.security.utils.PasswordHasher;
 import dk.bugelhartmann.ITokenSecurity;
 import dk.bugelhartmann.TokenSecurity;
 import dk.bugelhartmann.UserDTO;
@@ -25,8 +30,16 @@ import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.ParseException;
+import java.util.Base64;
+import java.util.Date;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -39,54 +52,109 @@ public class SecurityController implements ISecurityController {
     private static ISecurityDAO securityDAO;
     private static SecurityController instance;
     private static Logger logger = LoggerFactory.getLogger(SecurityController.class);
+    private final PasswordHasher passwordHasher = PasswordHasher.getInstance();
 
-    private SecurityController() { }
+    // Resolved once instead of on every token operation
+    private final String issuer;
+    private final String tokenExpireTime;
+    private final String secretKey;
+
+    // Tokens that already passed signature validation, keyed by SHA-256 of the token and kept until the token expires
+    private final Cache<String, VerifiedToken> verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfter(new Expiry<String, VerifiedToken>() {
+                @Override
+                public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, token.expiresAt() - System.currentTimeMillis()));
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    private record VerifiedToken(UserDTO user, long expiresAt) { }
+
+    private SecurityController() {
+        AppConfig config = AppConfig.getInstance();
+        issuer = config.getIssuer();
+        tokenExpireTime = config.getTokenExpireTime();
+        secretKey = config.getSecretKey();
+    }
 
     public static SecurityController getInstance() { // Singleton because we don't want multiple instances of the same class
         if (instance == null) {
             instance = new SecurityController();
         }
-        securityDAO = new SecurityDAO(HibernateConfig.getEntityManagerFactory());
         return instance;
     }
 
+    // Created on first use, so token handling works without a database (e.g. in the benchmarks)
+    private static synchronized ISecurityDAO securityDAO() {
+        if (securityDAO == null) {
+            securityDAO = new SecurityDAO(HibernateConfig.getEntityManagerFactory());
+        }
+        return securityDAO;
+    }
+
     @Override
     public Handler login() {
         return (ctx) -> {
             ObjectNode returnObject = objectMapper.createObjectNode(); // for sending json messages back to the client
-            try {
-                UserDTO user = ctx.bodyAsClass(UserDTO.class);
-                UserDTO verifiedUser = securityDAO.getVerifiedUser(user.getUsername(), user.getPassword());
-                String token = createToken(verifiedUser);
-
-                ctx.status(200).json(returnObject
-                        .put("token", token)
-                        .put("username", verifiedUser.getUsername()));
-
-            } catch (EntityNotFoundException | ValidationException e) {
-                ctx.status(401);
-                System.out.println(e.getMessage());
-                ctx.json(returnObject.put("msg", e.getMessage()));
-            }
+            UserDTO user = ctx.bodyAsClass(UserDTO.class);
+            // BCrypt runs on the password hashing pool, the request thread is not held while it works
+            CompletableFuture<UserDTO> verification = passwordHasher.submit(() -> getVerifiedUser(user));
+            ctx.future(() -> verification
+                    .thenAccept(verifiedUser -> ctx.status(200).json(returnObject
+                            .put("token", createToken(verifiedUser))
+                            .put("username", verifiedUser.getUsername())))
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        if (cause instanceof EntityNotFoundException || cause instanceof ValidationException) {
+                            ctx.status(401);
+                            ctx.json(returnObject.put("msg", cause.getMessage()));
+                            return null;
+                        }
+                        throw e instanceof CompletionException completionException ? completionException : new CompletionException(e);
+                    }));
         };
     }
 
+    private UserDTO getVerifiedUser(UserDTO user) {
+        try {
+            return securityDAO().getVerifiedUser(user.getUsername(), user.getPassword());
+        } catch (ValidationException e) {
+            throw new CompletionException(e);
+        }
+    }
+
     @Override
     public Handler register() {
         return (ctx) -> {
             ObjectNode returnObject = objectMapper.createObjectNode();
-            try {
-                UserDTO userInput = ctx.bodyAsClass(UserDTO.class);
-                User created = securityDAO.createUser(userInput.getUsername(), userInput.getPassword());
-
-                String token = createToken(new UserDTO(created.getUsername(), Set.of("USER")));
-                ctx.status(HttpStatus.CREATED).json(returnObject
-                        .put("token", token)
-                        .put("username", created.getUsername()));
-            } catch (EntityExistsException e) {
-                ctx.status(HttpStatus.UNPROCESSABLE_CONTENT);
-                ctx.json(returnObject.put("msg", "User already exists"));
-            }
+            UserDTO userInput = ctx.bodyAsClass(UserDTO.class);
+            // the new password is hashed on the password hashing pool
+            CompletableFuture<User> registration = passwordHasher.submit(() -> securityDAO().createUser(userInput.getUsername(), userInput.getPassword()));
+            ctx.future(() -> registration
+                    .thenAccept(created -> ctx.status(HttpStatus.CREATED).json(returnObject
+                            .put("token", createToken(new UserDTO(created.getUsername(), Set.of("USER"))))
+                            .put("username", created.getUsername())))
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        if (cause instanceof EntityExistsException) {
+                            ctx.status(HttpStatus.UNPROCESSABLE_CONTENT);
+                            ctx.json(returnObject.put("msg", "User already exists"));
+                            return null;
+                        }
+                        throw e instanceof CompletionException completionException ? completionException : new CompletionException(e);
+                    }));
         };
     }
 
@@ -116,7 +184,7 @@ public class SecurityController implements ISecurityController {
             if (verifiedTokenUser == null) {
                 throw new UnauthorizedResponse("Invalid User or Token");
             }
-            logger.info("User verified: " + verifiedTokenUser);
+            logger.debug("User verified: {}", verifiedTokenUser);
             ctx.attribute("user", verifiedTokenUser);
         };
     }
@@ -138,20 +206,7 @@ public class SecurityController implements ISecurityController {
     @Override
     public String createToken(UserDTO user) {
         try {
-            String ISSUER;
-            String TOKEN_EXPIRE_TIME;
-            String SECRET_KEY;
-
-            if (System.getenv("DEPLOYED") != null) {
-                ISSUER = System.getenv("ISSUER");
-                TOKEN_EXPIRE_TIME = System.getenv("TOKEN_EXPIRE_TIME");
-                SECRET_KEY = System.getenv("SECRET_KEY");
-            } else {
-                ISSUER = Utils.getPropertyValue("ISSUER", "config.properties");
-                TOKEN_EXPIRE_TIME = Utils.getPropertyValue("TOKEN_EXPIRE_TIME", "config.properties");
-                SECRET_KEY = Utils.getPropertyValue("SECRET_KEY", "config.properties");
-            }
-            return tokenSecurity.createToken(user, ISSUER, TOKEN_EXPIRE_TIME, SECRET_KEY);
+            return tokenSecurity.createToken(user, issuer, tokenExpireTime, secretKey);
         } catch (Exception e) {
             e.printStackTrace();
             throw new ApiException(500, "Could not create token");
@@ -160,12 +215,20 @@ public class SecurityController implements ISecurityController {
 
     @Override
     public UserDTO verifyToken(String token) {
-        boolean IS_DEPLOYED = (System.getenv("DEPLOYED") != null);
-        String SECRET = IS_DEPLOYED ? System.getenv("SECRET_KEY") : Utils.getPropertyValue("SECRET_KEY", "config.properties");
+        String tokenHash = hash(token);
+        VerifiedToken verified = verifiedTokens.getIfPresent(tokenHash);
+        if (verified != null) {
+            return verified.user();
+        }
 
         try {
-            if (tokenSecurity.tokenIsValid(token, SECRET) && tokenSecurity.tokenNotExpired(token)) {
-                return tokenSecurity.getUserWithRolesFromToken(token);
+            if (tokenSecurity.tokenIsValid(token, secretKey) && tokenSecurity.tokenNotExpired(token)) {
+                UserDTO user = tokenSecurity.getUserWithRolesFromToken(token);
+                Date expiresAt = SignedJWT.parse(token).getJWTClaimsSet().getExpirationTime();
+                if (expiresAt != null) {
+                    verifiedTokens.put(tokenHash, new VerifiedToken(user, expiresAt.getTime()));
+                }
+                return user;
             } else {
                 throw new NotAuthorizedException(403, "Token is not valid");
             }
@@ -175,6 +238,15 @@ public class SecurityController implements ISecurityController {
         }
     }
 
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     public @NotNull Handler addRole() {
         return (ctx) -> {
             ObjectNode returnObject = objectMapper.createObjectNode();
@@ -183,7 +255,7 @@ public class SecurityController implements ISecurityController {
                 // We need to get the role from the body and the username from the token
                 String newRole = ctx.bodyAsClass(ObjectNode.class).get("role").asText();
                 UserDTO user = ctx.attribute("user");
-                User updatedUser = securityDAO.addRole(user, newRole);
+                User updatedUser = securityDAO().addRole(user, newRole);
                 ctx.status(200).json(returnObject.put("msg", "Role " + newRole + " added to user"));
             } catch (EntityNotFoundException e) {
                 ctx.status(404).json("{\"msg\": \"User not found\"}");
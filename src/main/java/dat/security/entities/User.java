@@ -1,8 +1,10 @@
 package dat.security.entities;
 
 import jakarta.persistence.*;
+import dat.security.utils.PasswordHasher;
 import lombok.*;
-import org.mindrot.jbcrypt.BCrypt;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -14,6 +16,8 @@ import java.util.Set;
  * Author: Thomas Hartmann
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
 @Table(name = "users")
 @NamedQueries(@NamedQuery(name = "User.deleteAllRows", query = "DELETE from User"))
 @Getter
@@ -34,6 +38,7 @@ public class User implements Serializable, ISecurityUser {
     @Column(name = "password")
     private String password;
 
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-roles")
     @JoinTable(name = "user_roles", joinColumns = {@JoinColumn(name = "user_name", referencedColumnName = "username")}, inverseJoinColumns = {@JoinColumn(name = "role_name", referencedColumnName = "name")})
     @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.PERSIST)
     private Set<Role> roles = new HashSet<>();
@@ -50,12 +55,12 @@ public class User implements Serializable, ISecurityUser {
     }
 
     public boolean verifyPassword(String pw) {
-        return BCrypt.checkpw(pw, this.password);
+        return PasswordHasher.getInstance().check(pw, this.password);
     }
 
     public User(String userName, String userPass) {
         this.username = userName;
-        this.password = BCrypt.hashpw(userPass, BCrypt.gensalt());
+        this.password = PasswordHasher.getInstance().hash(userPass);
     }
 
     public User(String userName, Set<Role> roleEntityList) {
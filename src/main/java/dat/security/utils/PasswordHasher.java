@@ -0,0 +1,105 @@
+package dat.security.utils;
+
+import dat.config.AppConfig;
+import io.javalin.http.ServiceUnavailableResponse;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Purpose: To run BCrypt hashing on its own bounded thread pool, so a login storm cannot starve the request threads
+ */
+public class PasswordHasher {
+
+    private static PasswordHasher instance;
+
+    private final int logRounds;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder hashCount = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder rejected = new LongAdder();
+
+    private PasswordHasher(int threads, int queueSize, int logRounds) {
+        this.logRounds = logRounds;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static synchronized PasswordHasher getInstance() {
+        if (instance == null) {
+            AppConfig config = AppConfig.getInstance();
+            instance = new PasswordHasher(
+                    config.getInt("BCRYPT_THREADS", Runtime.getRuntime().availableProcessors()),
+                    config.getInt("BCRYPT_QUEUE_SIZE", 100),
+                    config.getInt("BCRYPT_LOG_ROUNDS", 10));
+        }
+        return instance;
+    }
+
+    // Runs the task on the hashing pool. Answers 503 when the queue is full instead of piling up work
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ServiceUnavailableResponse("Too many login requests, try again later");
+        }
+    }
+
+    public String hash(String password) {
+        long start = System.nanoTime();
+        try {
+            return BCrypt.hashpw(password, BCrypt.gensalt(logRounds));
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public boolean check(String password, String hashed) {
+        long start = System.nanoTime();
+        try {
+            return BCrypt.checkpw(password, hashed);
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    private void record(long nanos) {
+        hashCount.increment();
+        hashNanos.add(nanos);
+        maxHashNanos.accumulate(nanos);
+    }
+
+    public Map<String, Object> getStats() {
+        long count = hashCount.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("logRounds", logRounds);
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("activeThreads", executor.getActiveCount());
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        stats.put("rejected", rejected.sum());
+        stats.put("hashes", count);
+        stats.put("avgHashMillis", count == 0 ? 0.0 : hashNanos.sum() / 1_000_000.0 / count);
+        stats.put("maxHashMillis", maxHashNanos.get() / 1_000_000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,174 @@
+package dat.utils;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import dat.config.AppConfig;
+import io.javalin.http.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Purpose: Response compression settings and Accept-Encoding negotiation, shared by Javalin's compression
+ * and the precompressed bodies in ResponseCache.
+ * COMPRESSION lists the encodings in order of preference ("brotli,gzip", "gzip" or "none").
+ * Brotli needs the brotli4j native library and is dropped with a warning where it cannot be loaded
+ */
+public final class Compression {
+
+    public static final String GZIP = "gzip";
+    public static final String BROTLI = "br";
+
+    private static final Logger logger = LoggerFactory.getLogger(Compression.class);
+    private static final int gzipLevel = AppConfig.getInstance().getInt("COMPRESSION_GZIP_LEVEL", 6);
+    private static final int brotliLevel = AppConfig.getInstance().getInt("COMPRESSION_BROTLI_LEVEL", 4);
+    private static final int minBytes = AppConfig.getInstance().getInt("COMPRESSION_MIN_BYTES", 1500);
+    private static final List<String> encodings = resolveEncodings(AppConfig.getInstance().get("COMPRESSION", "gzip"));
+    private static final String DISABLED_ATTRIBUTE = "compressionDisabled";
+
+    private Compression() {
+    }
+
+    // Enabled encodings, most preferred first. Empty when compression is off
+    public static List<String> getEncodings() {
+        return encodings;
+    }
+
+    public static int getGzipLevel() {
+        return gzipLevel;
+    }
+
+    public static int getBrotliLevel() {
+        return brotliLevel;
+    }
+
+    // Smaller bodies are sent uncompressed, the headers would eat most of the saving
+    public static int getMinBytes() {
+        return minBytes;
+    }
+
+    // Turns off Javalin's compression for this response, and tells ResponseCache not to send a precompressed body
+    public static void disable(Context ctx) {
+        ctx.disableCompression();
+        ctx.attribute(DISABLED_ATTRIBUTE, true);
+    }
+
+    public static boolean isDisabled(Context ctx) {
+        return Boolean.TRUE.equals(ctx.attribute(DISABLED_ATTRIBUTE));
+    }
+
+    public static byte[] encode(String encoding, byte[] body) {
+        return encode(encoding, body, BROTLI.equals(encoding) ? brotliLevel : gzipLevel);
+    }
+
+    public static byte[] encode(String encoding, byte[] body, int level) {
+        switch (encoding) {
+            case GZIP:
+                return gzip(body, level);
+            case BROTLI:
+                try {
+                    return Encoder.compress(body, new Encoder.Parameters().setQuality(level));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            default:
+                throw new IllegalArgumentException("Unsupported encoding " + encoding);
+        }
+    }
+
+    // Picks the available encoding with the highest q-value in Accept-Encoding, ties go to the server's preference.
+    // Returns null when the body should be sent as is
+    public static String negotiate(String acceptEncoding, Collection<String> available) {
+        if (acceptEncoding == null || available.isEmpty()) {
+            return null;
+        }
+        String best = null;
+        double bestQ = 0;
+        for (String encoding : encodings) {
+            if (!available.contains(encoding)) {
+                continue;
+            }
+            double q = qValue(acceptEncoding, encoding);
+            if (q > bestQ) {
+                best = encoding;
+                bestQ = q;
+            }
+        }
+        return best;
+    }
+
+    // q-value the client gives the encoding: explicit entry first, then "*", else 0
+    private static double qValue(String acceptEncoding, String encoding) {
+        double wildcard = 0;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(encoding)) {
+                return q;
+            }
+            if (name.equals("*")) {
+                wildcard = q;
+            }
+        }
+        return wildcard;
+    }
+
+    private static List<String> resolveEncodings(String setting) {
+        List<String> resolved = new ArrayList<>();
+        for (String name : setting.toLowerCase().split(",")) {
+            switch (name.trim()) {
+                case "gzip" -> resolved.add(GZIP);
+                case "brotli", "br" -> {
+                    if (brotliAvailable()) {
+                        resolved.add(BROTLI);
+                    }
+                }
+                case "none", "" -> { }
+                default -> logger.warn("Unknown compression {} in COMPRESSION, ignored", name);
+            }
+        }
+        return List.copyOf(resolved);
+    }
+
+    private static boolean brotliAvailable() {
+        try {
+            Brotli4jLoader.ensureAvailability();
+            return true;
+        } catch (Throwable e) {
+            logger.warn("Brotli is not available on this platform, falling back to the other encodings: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static byte[] gzip(byte[] body, int level) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,61 @@
+package dat.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Purpose: Bounded in-memory read-through cache for DTOs, evicted by size (W-TinyLFU) and age
+ */
+public class DTOCache<K, V> {
+
+    private final String name;
+    private final Cache<K, V> cache;
+
+    public DTOCache(String name, long maximumSize, Duration expireAfterWrite) {
+        this.name = name;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    // Returns the cached value or calls the loader. A null from the loader is not cached
+    public V get(K key, Function<K, V> loader) {
+        return cache.get(key, loader);
+    }
+
+    // Cached value or null, never loads
+    public V getIfPresent(K key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package dat.utils;
+
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+import io.javalin.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Purpose: Strong ETags built from entity versions, and If-None-Match handling for conditional GETs
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    // "hotel-12-v3": changes whenever the hotel or one of its rooms is written
+    public static String of(String kind, Object id, long version) {
+        return "\"" + kind + "-" + id + "-v" + version + "\"";
+    }
+
+    // For collections: a digest of the request and the (id, version) pairs on the page
+    public static String ofSignature(String signature) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(signature.getBytes(StandardCharsets.UTF_8));
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static boolean hasIfNoneMatch(Context ctx) {
+        return ctx.header(Header.IF_NONE_MATCH) != null;
+    }
+
+    // Sets the ETag header. Answers 304 with no body and returns true when the client already has this version
+    public static boolean notModified(Context ctx, String etag) {
+        ctx.header(Header.ETAG, etag);
+        if (matches(ctx.header(Header.IF_NONE_MATCH), etag)) {
+            ctx.status(HttpStatus.NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    // If-None-Match uses weak comparison and may list several tags or be "*"
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,128 @@
+package dat.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Purpose: Cache of serialized JSON response bodies, optionally precompressed in every enabled encoding
+ * (see Compression). A hit is written straight to the servlet output stream without any Jackson or
+ * compression work. Bounded by the total size of the bodies
+ */
+public class ResponseCache<K> {
+
+    private final String name;
+    private final boolean precompress;
+    private final Cache<K, Entry> cache;
+
+    /**
+     * A cached response: the JSON body, its compressed variants keyed by content coding (empty when not
+     * compressed) and the headers to send with it
+     */
+    public record Entry(byte[] json, Map<String, byte[]> encoded, Map<String, String> headers) {
+
+        int weight() {
+            int weight = json.length;
+            for (byte[] variant : encoded.values()) {
+                weight += variant.length;
+            }
+            return weight;
+        }
+    }
+
+    public ResponseCache(String name, long maximumBytes, Duration expireAfterWrite, boolean precompress) {
+        this.name = name;
+        this.precompress = precompress;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .weigher((K key, Entry entry) -> entry.weight())
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    // Returns the cached response or calls the loader. Exceptions from the loader (e.g. a 404) are not cached
+    public Entry get(K key, Function<K, Entry> loader) {
+        return cache.get(key, loader);
+    }
+
+    // Serializes the body once and, when enabled and large enough, compresses it in each enabled encoding
+    public Entry entry(ObjectMapper objectMapper, Object body, Map<String, String> headers) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            Map<String, byte[]> encoded = new LinkedHashMap<>();
+            if (precompress && json.length >= Compression.getMinBytes()) {
+                for (String encoding : Compression.getEncodings()) {
+                    encoded.put(encoding, Compression.encode(encoding, json));
+                }
+            }
+            return new Entry(json, Map.copyOf(encoded), Map.copyOf(headers));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        }
+    }
+
+    public void invalidate(K key) {
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.estimatedSize());
+        result.put("bytes", cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    // A precompressed variant that fits the client's Accept-Encoding is written straight to the servlet response,
+    // bypassing Javalin's result handling and compression. Otherwise the JSON goes through ctx.result, so Javalin
+    // compresses it like any other body, or leaves it alone where compression is disabled for the request
+    public static void write(Context ctx, Entry entry) {
+        boolean compressible = !Compression.isDisabled(ctx) && !Compression.getEncodings().isEmpty();
+        String encoding = compressible ? Compression.negotiate(ctx.header(Header.ACCEPT_ENCODING), entry.encoded().keySet()) : null;
+        ctx.status(200);
+        ctx.contentType(ContentType.JSON);
+        entry.headers().forEach(ctx::header);
+        if (compressible) {
+            ctx.header(Header.VARY, Header.ACCEPT_ENCODING);
+        }
+        if (encoding == null) {
+            ctx.result(entry.json());
+            return;
+        }
+        byte[] body = entry.encoded().get(encoding);
+        HttpServletResponse res = ctx.res();
+        res.setHeader(Header.CONTENT_ENCODING, encoding);
+        res.setContentLength(body.length);
+        try {
+            res.getOutputStream().write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
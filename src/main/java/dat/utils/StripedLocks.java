@@ -0,0 +1,44 @@
+package dat.utils;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Purpose: A fixed set of locks shared by many keys. Work on the same key is serialized,
+ * work on different keys almost always lands on different stripes and runs in parallel.
+ */
+public class StripedLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLocks(int minStripes) {
+        // round up to a power of two so the stripe can be picked with a mask
+        int size = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withLock(Object key, Supplier<T> action) {
+        ReentrantLock lock = stripeFor(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return stripes.length;
+    }
+
+    private ReentrantLock stripeFor(Object key) {
+        int h = key.hashCode();
+        // fold the high bits in, the same way HashMap spreads its hashes
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+}
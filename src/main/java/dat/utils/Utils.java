@@ -4,29 +4,34 @@ import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import dat.entities.Room;
 import dat.security.exceptions.ApiException;
 import io.javalin.http.Context;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Purpose: Utility class to read properties from a file
  * Author: Thomas Hartmann
  */
 public class Utils {
+    // Each resource is parsed once. Prefer AppConfig for application settings
+    private static final Map<String, Properties> loadedResources = new ConcurrentHashMap<>();
+
     public static void main(String[] args) {
         System.out.println(getPropertyValue("db.name", "properties-from-pom.properties"));
     }
     public static String getPropertyValue(String propName, String resourceName)  {
         // REMEMBER TO BUILD WITH MAVEN FIRST. Read the property file if not deployed (else read system vars instead)
         // Read from ressources/config.properties or from pom.xml depending on the ressourceName
-        try (InputStream is = Utils.class.getClassLoader().getResourceAsStream(resourceName)) {
-            Properties prop = new Properties();
-            prop.load(is);
+        try {
+            Properties prop = loadedResources.computeIfAbsent(resourceName, Utils::loadResource);
 
             String value = prop.getProperty(propName);
             if (value != null) {
@@ -34,12 +39,25 @@ public class Utils {
             } else {
                 throw new ApiException(500, String.format("Property %s not found in %s", propName, resourceName));
             }
-        } catch (IOException ex) {
+        } catch (UncheckedIOException ex) {
             ex.printStackTrace();
             throw new ApiException(500, String.format("Could not read property %s. Did you remember to build the project with MAVEN?", propName));
         }
     }
 
+    private static Properties loadResource(String resourceName) {
+        try (InputStream is = Utils.class.getClassLoader().getResourceAsStream(resourceName)) {
+            if (is == null) {
+                throw new IOException(resourceName + " not found on the classpath");
+            }
+            Properties prop = new Properties();
+            prop.load(is);
+            return prop;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     public ObjectMapper getObjectMapper() {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false); // Ignore unknown properties in JSON
@@ -48,6 +66,18 @@ public class Utils {
         return objectMapper;
     }
 
+    // Optional room type query parameter, case-insensitive. null when absent, 400 when not a room type
+    public static Room.RoomType parseRoomType(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Room.RoomType.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Not a valid room type");
+        }
+    }
+
     public static String convertToJsonMessage(Context ctx, String property, String message) {
         Map<String, String> msgMap = new HashMap<>();
         msgMap.put(property, message);  // Put the message in the map
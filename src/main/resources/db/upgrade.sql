@@ -0,0 +1,50 @@
+-- Brings a PostgreSQL schema created by an earlier version up to date. Safe to run more than once.
+-- Deployments run with HBM2DDL_AUTO=validate, which checks the schema but never changes it, and import.sql
+-- only runs when Hibernate creates the schema. Apply this before deploying:
+--   psql -h <host> -U <user> -d <db> -f src/main/resources/db/upgrade.sql
+
+-- Pooled sequences for hotel and room ids (allocationSize 50). The ids used to come from IDENTITY columns, so each
+-- sequence is moved past the highest existing id; Hibernate hands out the 50 ids up to the value it draws.
+-- GREATEST keeps a sequence that is already in use from moving backwards when the script runs again
+ALTER TABLE hotel ALTER COLUMN hotel_id DROP IDENTITY IF EXISTS;
+ALTER TABLE room ALTER COLUMN room_id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS hotel_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS room_seq START WITH 1 INCREMENT BY 50;
+SELECT setval('hotel_seq', GREATEST((SELECT COALESCE(max(hotel_id), 0) FROM hotel) + 50, (SELECT last_value FROM hotel_seq)));
+SELECT setval('room_seq', GREATEST((SELECT COALESCE(max(room_id), 0) FROM room) + 50, (SELECT last_value FROM room_seq)));
+
+-- Rooms: one room number per hotel, and the indexes behind room search. Adding the constraint fails if a hotel
+-- already has two rooms with the same number; renumber or remove the duplicates and run the script again
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_room_hotel_number') THEN
+        ALTER TABLE room ADD CONSTRAINT uk_room_hotel_number UNIQUE (hotel_id, room_number);
+    END IF;
+END $$;
+CREATE INDEX IF NOT EXISTS idx_room_hotel_type ON room (hotel_id, room_type);
+CREATE INDEX IF NOT EXISTS idx_room_price ON room (price);
+
+-- Bookings: optimistic lock column on room, the booking table, and the final guard against double bookings
+ALTER TABLE room ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
+CREATE SEQUENCE IF NOT EXISTS booking_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS booking (
+    booking_id integer NOT NULL PRIMARY KEY,
+    room_id    integer NOT NULL REFERENCES room (room_id) ON DELETE CASCADE,
+    check_in   date    NOT NULL,
+    check_out  date    NOT NULL,
+    guest_name varchar(255) NOT NULL,
+    username   varchar(255)
+);
+-- owner of each booking. Bookings made before this column existed have none and can only be read by admins
+ALTER TABLE booking ADD COLUMN IF NOT EXISTS username varchar(255);
+CREATE INDEX IF NOT EXISTS idx_booking_room_dates ON booking (room_id, check_in, check_out);
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'booking_no_overlap') THEN
+        ALTER TABLE booking ADD CONSTRAINT booking_no_overlap EXCLUDE USING gist (room_id WITH =, daterange(check_in, check_out, '[)') WITH &&);
+    END IF;
+END $$;
+
+-- ETags: hotel version, bumped by every write to the hotel or one of its rooms
+ALTER TABLE hotel ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,5 @@
+-- Loaded by Hibernate after the schema is created (hbm2ddl create/create-drop). One statement per line.
+-- Existing schemas get the same constraint from db/upgrade.sql, BookingDAO refuses to start without it.
+-- Final guard against double bookings: no two bookings of the same room may have overlapping [check_in, check_out) ranges
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+ALTER TABLE booking ADD CONSTRAINT booking_no_overlap EXCLUDE USING gist (room_id WITH =, daterange(check_in, check_out, '[)') WITH &&);
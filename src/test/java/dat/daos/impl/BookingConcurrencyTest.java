@@ -0,0 +1,146 @@
+package dat.daos.impl;
+
+import dat.config.HibernateConfig;
+import dat.dtos.BookingDTO;
+import dat.dtos.HotelDTO;
+import dat.dtos.RoomDTO;
+import dat.entities.Booking;
+import dat.entities.Hotel;
+import dat.entities.Room;
+import dat.security.exceptions.ApiException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Purpose: Many threads booking the same few hot rooms and their own independent rooms at once, against
+ * PostgreSQL in a container. No two bookings of a room may overlap afterwards. Throughput is measured by
+ * BookingThroughput in the load test module, not here
+ */
+class BookingConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 100;
+    private static final int HOT_ROOMS = 2;
+    private static final int DAYS_AHEAD = 90;
+
+    private static EntityManagerFactory emf;
+    private static BookingDAO bookingDAO;
+    private static List<Integer> hotRooms;
+    private static List<Integer> independentRooms;
+    // only used by the test that bypasses the DAO
+    private static Integer unmanagedRoom;
+
+    @BeforeAll
+    static void setUpAll() {
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        HotelDTO hotel = new HotelDTO("Booking Stress Hotel", "Test Street 1", Hotel.HotelType.STANDARD);
+        for (int i = 0; i < HOT_ROOMS + THREADS + 1; i++) {
+            hotel.getRooms().add(new RoomDTO(null, 100 + i, BigDecimal.valueOf(1000), Room.RoomType.SINGLE));
+        }
+        HotelDAO.getInstance(emf).bulkImport(List.of(hotel).iterator());
+        List<Integer> roomIds;
+        try (EntityManager em = emf.createEntityManager()) {
+            roomIds = em.createQuery("SELECT r.roomId FROM Room r WHERE r.hotel.hotelName = :name ORDER BY r.roomNumber", Integer.class)
+                    .setParameter("name", hotel.getHotelName())
+                    .getResultList();
+        }
+        hotRooms = roomIds.subList(0, HOT_ROOMS);
+        independentRooms = roomIds.subList(HOT_ROOMS, HOT_ROOMS + THREADS);
+        unmanagedRoom = roomIds.get(HOT_ROOMS + THREADS);
+        bookingDAO = BookingDAO.getInstance(emf);
+    }
+
+    @Test
+    void concurrentBookingsNeverOverlap() throws InterruptedException {
+        LongAdder created = new LongAdder();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService workers = Executors.newFixedThreadPool(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            int ownRoom = independentRooms.get(t);
+            workers.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    // half of the attempts fight over the hot rooms, the rest only compete with this thread
+                    int roomId = random.nextBoolean() ? hotRooms.get(random.nextInt(HOT_ROOMS)) : ownRoom;
+                    LocalDate from = LocalDate.now().plusDays(1 + random.nextInt(DAYS_AHEAD));
+                    try {
+                        bookingDAO.create(new BookingDTO(roomId, from, from.plusDays(1 + random.nextInt(5)), "Stress Test Guest"), "stress");
+                        created.increment();
+                    } catch (ApiException e) {
+                        if (e.getCode() != 409) {
+                            failures.add(e);
+                        }
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        workers.shutdown();
+        assertTrue(workers.awaitTermination(5, TimeUnit.MINUTES), "booking threads did not finish");
+
+        assertTrue(failures.isEmpty(), () -> "unexpected failures: " + failures);
+        try (EntityManager em = emf.createEntityManager()) {
+            Number overlapping = (Number) em.createNativeQuery("""
+                            SELECT count(*) FROM booking a JOIN booking b
+                              ON a.room_id = b.room_id AND a.booking_id < b.booking_id
+                             AND a.check_in < b.check_out AND b.check_in < a.check_out""")
+                    .getSingleResult();
+            assertEquals(0, overlapping.longValue(), "overlapping bookings of the same room");
+            Long stored = em.createQuery("SELECT count(b) FROM Booking b WHERE b.room.roomId IN :hot OR b.room.roomId IN :independent", Long.class)
+                    .setParameter("hot", hotRooms)
+                    .setParameter("independent", independentRooms)
+                    .getSingleResult();
+            assertEquals(created.sum(), stored, "every successful booking is stored exactly once");
+        }
+        assertTrue(created.sum() > 0, "no booking succeeded");
+    }
+
+    // The exclusion constraint rejects an overlap even when the locks and the availability index are bypassed
+    @Test
+    void databaseRejectsOverlapWithoutTheLock() {
+        LocalDate from = LocalDate.now().plusDays(1);
+        try (EntityManager em = emf.createEntityManager()) {
+            Room room = em.find(Room.class, unmanagedRoom);
+            em.getTransaction().begin();
+            em.persist(new Booking(room, from, from.plusDays(3), "First Guest", "stress"));
+            em.getTransaction().commit();
+
+            em.getTransaction().begin();
+            em.persist(new Booking(room, from.plusDays(1), from.plusDays(2), "Second Guest", "stress"));
+            PersistenceException e = assertThrows(PersistenceException.class, () -> em.getTransaction().commit());
+            assertTrue(hasSqlState(e, "23P01"), "expected an exclusion violation, got " + e);
+        }
+    }
+
+    private static boolean hasSqlState(Throwable e, String sqlState) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sqlException && sqlState.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,134 @@
+package dat.daos.impl;
+
+import dat.config.HibernateConfig;
+import dat.dtos.HotelDTO;
+import dat.dtos.RoomDTO;
+import dat.entities.Hotel;
+import dat.entities.Room;
+import dat.security.exceptions.ApiException;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Purpose: Counts the SQL statements of the hotel read and write paths. Every hotel has ROOMS rooms, so an N+1
+ * (one query per room or per hotel) pushes a count far past the limit and fails the build
+ */
+class HotelDAOQueryCountTest {
+
+    private static final int HOTELS = 5;
+    private static final int ROOMS = 20;
+
+    private static EntityManagerFactory emf;
+    private static HotelDAO dao;
+    private static Statistics statistics;
+
+    private int firstId;
+    private HotelDTO hotel;
+
+    @BeforeAll
+    static void setUpAll() {
+        emf = HibernateConfig.getEntityManagerFactoryForTest();
+        dao = HotelDAO.getInstance(emf);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (int h = 0; h < HOTELS; h++) {
+            hotel = dao.create(hotelWithRooms("Query Count Hotel " + System.nanoTime()));
+            if (h == 0) {
+                firstId = hotel.getId();
+            }
+        }
+    }
+
+    @Test
+    void findIsOneStatement() {
+        // the DTO cache would answer without SQL
+        dao.invalidate(hotel.getId());
+        HotelDTO found = count(() -> dao.find(hotel.getId()).orElseThrow(), 1);
+        assertEquals(ROOMS, found.getRooms().size());
+    }
+
+    @Test
+    void readPageWithoutRoomsIsOneStatement() {
+        List<HotelDTO> page = count(() -> dao.readPage(firstId - 1, HOTELS, false), 1);
+        assertEquals(HOTELS, page.size());
+    }
+
+    @Test
+    void readPageWithRoomsIsTwoStatements() {
+        List<HotelDTO> page = count(() -> dao.readPage(firstId - 1, HOTELS, true), 2);
+        assertEquals(HOTELS, page.size());
+        page.forEach(h -> assertEquals(ROOMS, h.getRooms().size()));
+    }
+
+    @Test
+    void updateIsOneStatement() {
+        HotelDTO changes = new HotelDTO(hotel.getHotelName(), "New Address", Hotel.HotelType.LUXURY);
+        HotelDTO updated = count(() -> dao.update(hotel.getId(), changes), 1);
+        assertNull(updated.getRooms(), "the update response never includes rooms");
+    }
+
+    @Test
+    void updateWithoutTypeIsABadRequest() {
+        HotelDTO changes = new HotelDTO(hotel.getHotelName(), "New Address", null);
+        ApiException e = assertThrows(ApiException.class, () -> dao.update(hotel.getId(), changes));
+        assertEquals(400, e.getCode());
+    }
+
+    // select of the hotel, insert of the room, hotel version bump and at most one sequence call. The hotel is not
+    // read back: the response is the cached hotel plus the new room
+    @Test
+    void addRoomDoesNotReadTheHotelBack() {
+        dao.find(hotel.getId()).orElseThrow();
+        statistics.clear();
+        HotelDTO result = RoomDAO.getInstance(emf).addRoomToHotel(hotel.getId(), new RoomDTO(null, 500, BigDecimal.valueOf(900), Room.RoomType.SINGLE));
+        assertTrue(statistics.getPrepareStatementCount() <= 4, () -> statistics.getPrepareStatementCount() + " prepared statements");
+        assertEquals(ROOMS + 1, result.getRooms().size());
+    }
+
+    @Test
+    void addRoomToAnUncachedHotelLeavesOutTheRooms() {
+        dao.invalidate(hotel.getId());
+        HotelDTO result = RoomDAO.getInstance(emf).addRoomToHotel(hotel.getId(), new RoomDTO(null, 500, BigDecimal.valueOf(900), Room.RoomType.SINGLE));
+        assertEquals(hotel.getHotelName(), result.getHotelName());
+        assertNull(result.getRooms());
+    }
+
+    // one select of the hotel with its rooms, one batched room delete and the hotel delete
+    @Test
+    void deleteDoesNotDependOnTheNumberOfRooms() {
+        count(() -> {
+            dao.delete(hotel.getId());
+            return null;
+        }, 3);
+        assertTrue(dao.find(hotel.getId()).isEmpty());
+    }
+
+    private static <T> T count(Supplier<T> work, long expectedStatements) {
+        statistics.clear();
+        T result = work.get();
+        assertEquals(expectedStatements, statistics.getPrepareStatementCount(), "prepared statements");
+        return result;
+    }
+
+    private static HotelDTO hotelWithRooms(String name) {
+        HotelDTO hotelDTO = new HotelDTO(name, "Test Street 1", Hotel.HotelType.STANDARD);
+        for (int r = 0; r < ROOMS; r++) {
+            hotelDTO.getRooms().add(new RoomDTO(null, 100 + r, BigDecimal.valueOf(1000 + r), Room.RoomType.DOUBLE));
+        }
+        return hotelDTO;
+    }
+}